@@ -31,6 +31,11 @@ class Entry {
     private volatile Menu parent;
     private volatile SystemTray systemTray;
 
+    private volatile String key;
+
+    // the menu that this entry was last added to. It is told when the key changes, so that it can recalculate its key index
+    volatile Menu owner;
+
     protected volatile EntryPeer peer;
 
     public
@@ -73,10 +78,37 @@ class Entry {
     }
 
     /**
-     * Removes this menu entry from the menu and releases all system resources associated with this menu entry
+     * @return the key that identifies this entry within its menu (see {@link Menu#reconcile(java.util.List)}), or null if it has none
      */
-    public
-    void remove() {
+    public final
+    String getKey() {
+        return this.key;
+    }
+
+    /**
+     * Sets the key that identifies this entry within its menu (see {@link Menu#reconcile(java.util.List)} and {@link Menu#find(String)}).
+     * Keys must be unique within a menu, and cannot contain '/'.
+     *
+     * @throws IllegalArgumentException if the key contains '/'
+     */
+    public final
+    void setKey(final String key) {
+        if (key != null && key.indexOf('/') >= 0) {
+            throw new IllegalArgumentException("Keys cannot contain '/': " + key);
+        }
+
+        this.key = key;
+
+        final Menu owner = this.owner;
+        if (owner != null) {
+            owner.keyChanged();
+        }
+    }
+
+    /**
+     * Removes the native menu entry, but keeps everything else (text, image, callback, etc) so this entry can be added again.
+     */
+    void detach() {
         if (peer != null) {
             peer.remove();
 
@@ -86,6 +118,28 @@ class Entry {
         }
     }
 
+    /**
+     * Forgets the native menu entry, without changing it. Only used when the native menu that it is in is destroyed all at once (see
+     * {@link Menu#remove()}), which also destroys this native entry.
+     */
+    void release() {
+        if (peer != null) {
+            peer.release();
+        }
+
+        this.parent = null;
+        this.systemTray = null;
+        peer = null;
+    }
+
+    /**
+     * Removes this menu entry from the menu and releases all system resources associated with this menu entry
+     */
+    public
+    void remove() {
+        detach();
+    }
+
 
     @Override
     public final
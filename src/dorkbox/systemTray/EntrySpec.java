@@ -0,0 +1,179 @@
+/*
+ * Copyright 2016 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray;
+
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes what a menu entry should look like, for {@link Menu#reconcile(List)}.
+ * <p>
+ * The key identifies the entry within its menu, so that the same entry is updated (instead of removed and re-created) when the menu is
+ * reconciled again. Keys must be unique within a menu.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final
+class EntrySpec {
+    public
+    enum Type {
+        ITEM, CHECKBOX, SEPARATOR, MENU
+    }
+
+    final Type type;
+    final String key;
+
+    String text;
+    File image;
+    ActionListener callback;
+    boolean enabled = true;
+    boolean checked = false;
+    char shortcut = 0;
+    List<EntrySpec> children = Collections.emptyList();
+
+    private
+    EntrySpec(final Type type, final String key) {
+        if (key == null) {
+            throw new NullPointerException("key");
+        }
+        if (key.indexOf('/') >= 0) {
+            throw new IllegalArgumentException("Keys cannot contain '/': " + key);
+        }
+
+        this.type = type;
+        this.key = key;
+    }
+
+    /**
+     * @return the spec for a menu entry
+     */
+    public static
+    EntrySpec item(final String key, final String text) {
+        EntrySpec spec = new EntrySpec(Type.ITEM, key);
+        spec.text = text;
+        return spec;
+    }
+
+    /**
+     * @return the spec for a checkbox
+     */
+    public static
+    EntrySpec checkbox(final String key, final String text) {
+        EntrySpec spec = new EntrySpec(Type.CHECKBOX, key);
+        spec.text = text;
+        return spec;
+    }
+
+    /**
+     * @return the spec for a separator
+     */
+    public static
+    EntrySpec separator(final String key) {
+        return new EntrySpec(Type.SEPARATOR, key);
+    }
+
+    /**
+     * @return the spec for a sub-menu, which is reconciled with the specified children
+     */
+    public static
+    EntrySpec menu(final String key, final String text, final List<EntrySpec> children) {
+        EntrySpec spec = new EntrySpec(Type.MENU, key);
+        spec.text = text;
+        spec.children = new ArrayList<EntrySpec>(children);
+        return spec;
+    }
+
+    /**
+     * @param image the image file (it will be resized and cached, like {@link MenuItem#setImage(File)}). Not used by checkboxes.
+     */
+    public
+    EntrySpec setImage(final File image) {
+        this.image = image;
+        return this;
+    }
+
+    public
+    EntrySpec setCallback(final ActionListener callback) {
+        this.callback = callback;
+        return this;
+    }
+
+    public
+    EntrySpec setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+        return this;
+    }
+
+    /**
+     * Only used by checkboxes.
+     */
+    public
+    EntrySpec setChecked(final boolean checked) {
+        this.checked = checked;
+        return this;
+    }
+
+    public
+    EntrySpec setShortcut(final char shortcut) {
+        this.shortcut = shortcut;
+        return this;
+    }
+
+    public
+    Type getType() {
+        return type;
+    }
+
+    public
+    String getKey() {
+        return key;
+    }
+
+    /**
+     * @return a copy of this spec, which does not change when this spec is changed
+     */
+    EntrySpec copy() {
+        EntrySpec spec = new EntrySpec(type, key);
+        spec.text = text;
+        spec.image = image;
+        spec.callback = callback;
+        spec.enabled = enabled;
+        spec.checked = checked;
+        spec.shortcut = shortcut;
+        spec.children = children;
+        return spec;
+    }
+
+    /**
+     * @return true if an existing entry of this type can be updated to match this spec
+     */
+    boolean matches(final Entry entry) {
+        switch (type) {
+            case ITEM:
+                return entry.getClass() == MenuItem.class;
+            case CHECKBOX:
+                return entry.getClass() == Checkbox.class;
+            case SEPARATOR:
+                return entry.getClass() == Separator.class;
+            case MENU:
+                return entry.getClass() == Menu.class;
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,394 @@
+/*
+ * Copyright 2016 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray;
+
+import java.awt.Component;
+import java.awt.Graphics2D;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.swing.Icon;
+import javax.swing.JCheckBoxMenuItem;
+import javax.swing.JMenu;
+import javax.swing.JMenuItem;
+import javax.swing.JSeparator;
+import javax.swing.SwingUtilities;
+
+import dorkbox.systemTray.util.ImageUtils;
+import dorkbox.systemTray.util.SwingDispatch;
+
+/**
+ * Converts Swing menus (JMenu, JMenuItem, etc) into entries, all at once.
+ * <p>
+ * Every icon is painted once (so the real pixels are used), icons with the same pixels are only resized and cached once, and the
+ * resizing runs in parallel. The entries are not added to a menu yet, so setting their images does not update anything native.
+ * <p>
+ * The Swing components (and their icons) are only used on the EDT. Everything after that (resizing and caching) runs off of it.
+ */
+final
+class JMenuImporter {
+    /**
+     * The pixels of a painted icon. Icons with the same pixels are equal.
+     */
+    private static final
+    class Raster {
+        final BufferedImage image;
+        final int[] pixels;
+        final int hash;
+
+        Raster(final BufferedImage image) {
+            this.image = image;
+
+            final int width = image.getWidth();
+            final int height = image.getHeight();
+            this.pixels = image.getRGB(0, 0, width, height, null, 0, width);
+            this.hash = 31 * (31 * width + height) + Arrays.hashCode(pixels);
+        }
+
+        @Override
+        public
+        int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public
+        boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Raster)) {
+                return false;
+            }
+
+            final Raster other = (Raster) obj;
+            return hash == other.hash &&
+                   image.getWidth() == other.image.getWidth() &&
+                   image.getHeight() == other.image.getHeight() &&
+                   Arrays.equals(pixels, other.pixels);
+        }
+    }
+
+    // every distinct icon, and the entries that use it
+    private final Map<Raster, List<MenuItem>> icons = new LinkedHashMap<Raster, List<MenuItem>>();
+
+    private
+    JMenuImporter() {
+    }
+
+    /**
+     * @return the entries for the components (the components that are not menu entries or separators are skipped), with their images
+     */
+    static
+    List<Entry> importComponents(final Component... components) {
+        final JMenuImporter importer = new JMenuImporter();
+        final AtomicReference<List<Entry>> entries = new AtomicReference<List<Entry>>();
+
+        runOnEdt(new Runnable() {
+            @Override
+            public
+            void run() {
+                entries.set(importer.convert(components));
+            }
+        });
+
+        if (entries.get() == null) {
+            // the conversion failed on the EDT
+            return new ArrayList<Entry>(0);
+        }
+
+        importer.setImages(ImageUtils.ENTRY_SIZE);
+        return entries.get();
+    }
+
+    /**
+     * Paints the icon (on the EDT, because that is where Swing icons have to be painted).
+     *
+     * @return the painted icon, or null if there is no icon
+     */
+    static
+    BufferedImage paint(final Icon icon, final Component component) {
+        if (icon == null) {
+            return null;
+        }
+
+        final AtomicReference<BufferedImage> image = new AtomicReference<BufferedImage>();
+
+        runOnEdt(new Runnable() {
+            @Override
+            public
+            void run() {
+                if (icon.getIconWidth() <= 0 || icon.getIconHeight() <= 0) {
+                    return;
+                }
+
+                final BufferedImage bimage = new BufferedImage(icon.getIconWidth(), icon.getIconHeight(), BufferedImage.TYPE_INT_ARGB);
+
+                final Graphics2D g = bimage.createGraphics();
+                try {
+                    icon.paintIcon(component, g, 0, 0);
+                } finally {
+                    g.dispose();
+                }
+
+                image.set(bimage);
+            }
+        });
+
+        return image.get();
+    }
+
+    /**
+     * Runs the runnable on the EDT, and waits for it to finish. If this is already the EDT, it runs right away.
+     */
+    private static
+    void runOnEdt(final Runnable runnable) {
+        if (SwingUtilities.isEventDispatchThread()) {
+            runnable.run();
+        }
+        else {
+            SwingDispatch.invokeAndWait(runnable);
+        }
+    }
+
+    private
+    List<Entry> convert(final Component[] components) {
+        final List<Entry> entries = new ArrayList<Entry>(components.length);
+
+        for (int i = 0, componentsLength = components.length; i < componentsLength; i++) {
+            final Component c = components[i];
+
+            if (c instanceof JMenu) {
+                entries.add(convert((JMenu) c));
+            }
+            else if (c instanceof JCheckBoxMenuItem) {
+                entries.add(convert((JCheckBoxMenuItem) c));
+            }
+            else if (c instanceof JMenuItem) {
+                entries.add(convert((JMenuItem) c));
+            }
+            else if (c instanceof JSeparator) {
+                entries.add(new Separator());
+            }
+        }
+
+        return entries;
+    }
+
+    private
+    Menu convert(final JMenu jMenu) {
+        final Menu menu = new Menu();
+        menu.setEnabled(jMenu.isEnabled());
+        addIcon(menu, jMenu);
+        menu.setText(jMenu.getText());
+        menu.setShortcut(jMenu.getMnemonic());
+
+        final List<Entry> entries = convert(jMenu.getMenuComponents());
+        for (int i = 0, entriesSize = entries.size(); i < entriesSize; i++) {
+            menu.add(entries.get(i));
+        }
+
+        return menu;
+    }
+
+    private
+    Checkbox convert(final JCheckBoxMenuItem jCheckBox) {
+        final Checkbox checkbox = new Checkbox();
+        checkbox.setCallback(getCallback(jCheckBox));
+        checkbox.setEnabled(jCheckBox.isEnabled());
+        checkbox.setChecked(jCheckBox.getState());
+        checkbox.setShortcut(jCheckBox.getMnemonic());
+        checkbox.setText(jCheckBox.getText());
+
+        return checkbox;
+    }
+
+    private
+    MenuItem convert(final JMenuItem jMenuItem) {
+        final MenuItem item = new MenuItem();
+        item.setCallback(getCallback(jMenuItem));
+        item.setEnabled(jMenuItem.isEnabled());
+        addIcon(item, jMenuItem);
+        item.setShortcut(jMenuItem.getMnemonic());
+        item.setText(jMenuItem.getText());
+
+        return item;
+    }
+
+    /**
+     * @return one callback for all of the action listeners, or null if there are none
+     */
+    private static
+    ActionListener getCallback(final JMenuItem jMenuItem) {
+        final ActionListener[] actionListeners = jMenuItem.getActionListeners();
+
+        if (actionListeners == null || actionListeners.length == 0) {
+            return null;
+        }
+
+        if (actionListeners.length == 1) {
+            return actionListeners[0];
+        }
+
+        return new ActionListener() {
+            @Override
+            public
+            void actionPerformed(final ActionEvent e) {
+                for (ActionListener actionListener : actionListeners) {
+                    actionListener.actionPerformed(e);
+                }
+            }
+        };
+    }
+
+    private
+    void addIcon(final MenuItem item, final JMenuItem jMenuItem) {
+        final BufferedImage image = paint(jMenuItem.getIcon(), jMenuItem);
+        if (image == null) {
+            return;
+        }
+
+        final Raster raster = new Raster(image);
+
+        List<MenuItem> items = icons.get(raster);
+        if (items == null) {
+            items = new ArrayList<MenuItem>();
+            icons.put(raster, items);
+        }
+        items.add(item);
+    }
+
+    /**
+     * Resizes every distinct icon (in parallel), caches it, and sets it on the entries that use it.
+     */
+    private
+    void setImages(final int size) {
+        if (icons.isEmpty()) {
+            return;
+        }
+
+        final List<Raster> rasters = new ArrayList<Raster>(icons.keySet());
+        final int count = rasters.size();
+
+        final List<Callable<byte[]>> tasks = new ArrayList<Callable<byte[]>>(count);
+        for (int i = 0; i < count; i++) {
+            final BufferedImage image = rasters.get(i).image;
+
+            tasks.add(new Callable<byte[]>() {
+                @Override
+                public
+                byte[] call() throws Exception {
+                    return ImageUtils.resizeToPng(size, image);
+                }
+            });
+        }
+
+        final List<byte[]> resized = resize(tasks);
+
+        for (int i = 0; i < count; i++) {
+            final Raster raster = rasters.get(i);
+            final byte[] png = resized.get(i);
+
+            final File file;
+            if (png != null) {
+                // already scaled, so (unless the icon is not square) this only caches it
+                file = ImageUtils.resizeAndCache(size, new ByteArrayInputStream(png));
+            }
+            else {
+                file = ImageUtils.resizeAndCache(size, raster.image);
+            }
+
+            final List<MenuItem> items = icons.get(raster);
+            for (int j = 0, itemsSize = items.size(); j < itemsSize; j++) {
+                items.get(j).setImage_(file);
+            }
+        }
+    }
+
+    /**
+     * @return the results of the tasks (in order). A result is null if that task failed.
+     */
+    private static
+    List<byte[]> resize(final List<Callable<byte[]>> tasks) {
+        final int count = tasks.size();
+        final List<byte[]> results = new ArrayList<byte[]>(count);
+
+        final int threads = Math.min(count, Runtime.getRuntime().availableProcessors());
+        if (threads <= 1) {
+            for (int i = 0; i < count; i++) {
+                try {
+                    results.add(tasks.get(i).call());
+                } catch (Exception e) {
+                    SystemTray.logger.error("Error resizing image.", e);
+                    results.add(null);
+                }
+            }
+
+            return results;
+        }
+
+        final AtomicInteger threadCount = new AtomicInteger(0);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public
+            Thread newThread(final Runnable r) {
+                Thread thread = new Thread(r, "SystemTray Image-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        try {
+            final List<Future<byte[]>> futures = executor.invokeAll(tasks);
+
+            for (int i = 0; i < count; i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    SystemTray.logger.error("Error resizing image.", e.getCause());
+                    results.add(null);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            // whatever was not resized is resized (and cached) the normal way
+            while (results.size() < count) {
+                results.add(null);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return results;
+    }
+}
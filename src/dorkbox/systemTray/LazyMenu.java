@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray;
+
+import java.util.concurrent.TimeUnit;
+
+import dorkbox.systemTray.peer.MenuPeer;
+
+/**
+ * A sub-menu whose entries are only created the first time it is about to show, instead of up front. This is meant for large or deep
+ * menus (file browsers, per-host actions, etc) where most sub-menus are never opened.
+ * <p>
+ * Until it is populated, the sub-menu only has a disabled placeholder entry (some trays do not show empty sub-menus). Trays that cannot
+ * tell when a sub-menu is about to show (AWT, and native AppIndicator menus) populate it as soon as it is added.
+ * <p>
+ * With an expiry, the entries are removed and populated again the next time the sub-menu is about to show after they have expired.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public
+class LazyMenu extends Menu {
+    /**
+     * Creates the entries of a {@link LazyMenu}. Called on the event thread of the tray, so it should not block.
+     */
+    public
+    interface Populator {
+        void populate(Menu menu);
+    }
+
+    private static final String PLACEHOLDER = "...";
+
+    private final Populator populator;
+
+    private volatile long expiryNanos = 0L;
+    private volatile boolean populated = false;
+    private volatile long populatedTime = 0L;
+
+    public
+    LazyMenu(final String text, final Populator populator) {
+        super(text);
+        this.populator = populator;
+
+        addPlaceholder();
+    }
+
+    private
+    void addPlaceholder() {
+        MenuItem placeholder = new MenuItem(PLACEHOLDER);
+        placeholder.setEnabled(false);
+        add(placeholder);
+    }
+
+    /**
+     * Sets how long the entries are used before they are populated again, the next time this sub-menu is about to show. 0 (the default)
+     * never populates them again.
+     */
+    public
+    void setExpiry(final long expiryMillis) {
+        this.expiryNanos = TimeUnit.MILLISECONDS.toNanos(expiryMillis);
+    }
+
+    /**
+     * Populates this sub-menu again the next time it is about to show.
+     */
+    public
+    void invalidate() {
+        populated = false;
+    }
+
+    @Override
+    public
+    void bind(final MenuPeer peer, final Menu parent, final SystemTray systemTray) {
+        super.bind(peer, parent, systemTray);
+
+        if (!peer.notifiesShowing()) {
+            populate();
+        }
+    }
+
+    @Override
+    public
+    void onShowing() {
+        if (!populated || (expiryNanos > 0L && System.nanoTime() - populatedTime > expiryNanos)) {
+            populate();
+        }
+    }
+
+    private
+    void populate() {
+        populated = true;
+        populatedTime = System.nanoTime();
+
+        edit(new Edit() {
+            @Override
+            public
+            void edit(final Menu menu) {
+                clear();
+
+                try {
+                    populator.populate(menu);
+                } finally {
+                    if (menuEntries.isEmpty()) {
+                        addPlaceholder();
+                    }
+                }
+            }
+        });
+    }
+}
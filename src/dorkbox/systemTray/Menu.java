@@ -15,19 +15,21 @@
  */
 package dorkbox.systemTray;
 
-import java.awt.Component;
 import java.awt.Image;
-import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import javax.swing.Icon;
 import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JMenu;
 import javax.swing.JMenuItem;
@@ -41,8 +43,19 @@ import dorkbox.systemTray.peer.MenuPeer;
 @SuppressWarnings("unused")
 public
 class Menu extends MenuItem {
-    // access on this object must be synchronized for object visibility
-    final List<Entry> menuEntries = new ArrayList<Entry>();
+    // this is replaced (never changed), so readers always get a consistent snapshot without locking
+    volatile MenuEntries menuEntries = MenuEntries.EMPTY;
+
+    // changes to the entries of this menu are synchronized on this. Different menus never contend with each other
+    private final Object entriesLock = new Object();
+
+    // the spec each entry was last reconciled with, so that only what changed is updated. Weak, so removed entries do not stay around
+    private final Map<Entry, EntrySpec> reconciledSpecs = new WeakHashMap<Entry, EntrySpec>();
+
+    private final Map<String, Section> sections = new HashMap<String, Section>();
+
+    // changes when the key of one of our entries changes, so that the key index knows when it has to be recalculated
+    private final AtomicInteger keyVersion = new AtomicInteger(0);
 
     public
     Menu() {
@@ -117,16 +130,9 @@ class Menu extends MenuItem {
     void bind(final MenuPeer peer, final Menu parent, final SystemTray systemTray) {
         super.bind(peer, parent, systemTray);
 
-        List<Entry> copy;
-        synchronized (menuEntries) {
-            // access on this object must be synchronized for object visibility
-            // a copy is made to prevent deadlocks from occurring when operating in different threads
-            copy = new ArrayList<Entry>(menuEntries);
-        }
-
-
-        for (int i = 0, menuEntriesSize = copy.size(); i < menuEntriesSize; i++) {
-            final Entry menuEntry = copy.get(i);
+        final MenuEntries snapshot = menuEntries;
+        for (int i = 0, menuEntriesSize = snapshot.size(); i < menuEntriesSize; i++) {
+            final Entry menuEntry = snapshot.get(i);
             peer.add(this, menuEntry, i);
         }
     }
@@ -149,151 +155,619 @@ class Menu extends MenuItem {
 
     /**
      * Adds a JMenu sub-menu to this menu. Because this is a conversion, the JMenu is no longer valid after this action.
+     * <p>
+     * The whole sub-menu is converted first (see {@link #addImported(List)}), and then added as ONE update of the native menu.
      */
-    @SuppressWarnings("Duplicates")
     public final
     Menu add(final JMenu entry) {
+        addImported(JMenuImporter.importComponents(entry));
+        return this;
+    }
 
-        Menu menu = new Menu();
-        menu.setEnabled(entry.isEnabled());
-
-        Icon icon = entry.getIcon();
-        BufferedImage bimage = new BufferedImage(icon.getIconWidth(), icon.getIconHeight(), BufferedImage.TYPE_INT_ARGB);
-        menu.setImage(bimage);
+    /**
+     * Adds a JCheckBoxMenuItem entry to this menu. Because this is a conversion, the JCheckBoxMenuItem is no longer valid after this action.
+     */
+    public final
+    Menu add(final JCheckBoxMenuItem entry) {
+        addImported(JMenuImporter.importComponents(entry));
+        return this;
+    }
 
-        menu.setText(entry.getText());
-        menu.setShortcut(entry.getMnemonic());
+    /**
+     * Adds a JMenuItem entry to this menu. Because this is a conversion, the JMenuItem is no longer valid after this action.
+     */
+    public final
+    Menu add(final JMenuItem entry) {
+        addImported(JMenuImporter.importComponents(entry));
+        return this;
+    }
 
-        Component[] menuComponents = entry.getMenuComponents();
-        for (int i = 0, menuComponentsLength = menuComponents.length; i < menuComponentsLength; i++) {
-            final Component c = menuComponents[i];
+    /**
+     * Adds a JSeparator entry to this menu. Because this is a conversion, the JSeparator is no longer valid after this action.
+     */
+    public final
+    Menu add(final JSeparator entry) {
+        addImported(JMenuImporter.importComponents(entry));
+        return this;
+    }
 
-            if (c instanceof JMenu) {
-                menu.add((JMenu) c);
-            }
-            else if (c instanceof JCheckBoxMenuItem) {
-                menu.add((JCheckBoxMenuItem) c);
+    /**
+     * Adds entries that were converted from Swing components. Every icon has already been painted, resized and cached, so the entries
+     * are complete, and they are all added as ONE update of the native menu.
+     */
+    void addImported(final List<Entry> entries) {
+        edit(new Edit() {
+            @Override
+            public
+            void edit(final Menu menu) {
+                for (int i = 0, entriesSize = entries.size(); i < entriesSize; i++) {
+                    add(entries.get(i));
+                }
             }
-            else if (c instanceof JMenuItem) {
-                menu.add((JMenuItem) c);
+        });
+    }
+
+    /**
+     * Adds a menu entry, separator, or sub-menu to this menu.
+     */
+    public
+    <T extends Entry> T  add(final T entry, int index) {
+        entry.owner = this;
+
+        synchronized (entriesLock) {
+            final MenuEntries snapshot = menuEntries;
+
+            if (index == -1) {
+                menuEntries = snapshot.add(snapshot.size(), entry);
+            } else {
+                if (!snapshot.isEmpty() && snapshot.get(0) instanceof Status) {
+                    // the "status" menu entry is ALWAYS first
+                    index++;
+                }
+                menuEntries = snapshot.add(index, entry);
             }
-            else if (c instanceof JSeparator) {
-                menu.add((JSeparator) c);
+        }
+
+        if (peer != null) {
+            ((MenuPeer) peer).add(this, entry, index);
+        }
+
+        return entry;
+    }
+
+    /**
+     * A batch of changes to a menu. See {@link #edit(Edit)}
+     */
+    public
+    interface Edit {
+        void edit(Menu menu);
+    }
+
+    /**
+     * Applies a batch of changes (adding, removing, and changing entries) to this menu as ONE update of the native menu, instead of one
+     * update per change.
+     * <p>
+     * The changes run on the event thread of the tray, and this waits for them to finish. They should not block.
+     */
+    public
+    void edit(final Edit edit) {
+        final Runnable changes = new Runnable() {
+            @Override
+            public
+            void run() {
+                try {
+                    edit.edit(Menu.this);
+                } catch (Throwable throwable) {
+                    SystemTray.logger.error("Error editing menu {}.", getText(), throwable);
+                }
             }
+        };
+
+        if (peer != null) {
+            ((MenuPeer) peer).edit(this, changes);
+        }
+        else {
+            // nothing native to update yet
+            changes.run();
         }
+    }
 
-        add(menu);
-        return this;
+    /**
+     * Changes the entries of this menu to match the specs (in order), with as few changes to the native menu as possible.
+     * <p>
+     * Entries are matched to specs by their key. A matching entry is only updated if its spec changed, entries that do not match a spec
+     * are removed, and only the entries that are out of order are moved (the most entries that are already in the right order stay where
+     * they are). Sub-menus are reconciled with the children of their spec. The status entry is not changed.
+     * <p>
+     * Everything is applied as ONE update of the native menu, the same as {@link #edit(Edit)}.
+     */
+    public
+    void reconcile(final List<EntrySpec> specs) {
+        final List<EntrySpec> copy = new ArrayList<EntrySpec>(specs);
+
+        edit(new Edit() {
+            @Override
+            public
+            void edit(final Menu menu) {
+                reconcile_(copy);
+            }
+        });
+    }
+
+    private
+    void reconcile_(final List<EntrySpec> specs) {
+        final MenuEntries snapshot = menuEntries;
+        reconcileRange(snapshot.start(), snapshot.size(), specs);
     }
 
     /**
-     * Adds a JCheckBoxMenuItem entry to this menu. Because this is a conversion, the JCheckBoxMenuItem is no longer valid after this action.
+     * Reconciles the entries from 'from' (inclusive) to 'to' (exclusive) with the specs. Must be called inside of an edit.
+     *
+     * @return the entries for the specs, in order
      */
-    public final
-    Menu add(final JCheckBoxMenuItem entry) {
-        Checkbox checkbox = new Checkbox();
+    List<Entry> reconcileRange(final int from, final int to, final List<EntrySpec> specs) {
+        synchronized (reconciledSpecs) {
+            final MenuEntries snapshot = menuEntries;
+
+            final Map<String, Entry> byKey = new HashMap<String, Entry>();
+            for (int i = from; i < to; i++) {
+                final Entry entry = snapshot.get(i);
+                if (entry.getKey() != null) {
+                    byKey.put(entry.getKey(), entry);
+                }
+            }
 
-        final ActionListener[] actionListeners = entry.getActionListeners();
-        //noinspection Duplicates
-        if (actionListeners != null) {
-            if (actionListeners.length == 1) {
-                checkbox.setCallback(actionListeners[0]);
-            } else {
-                ActionListener actionListener = new ActionListener() {
-                    @Override
-                    public
-                    void actionPerformed(final ActionEvent e) {
-                        for (ActionListener actionListener : actionListeners) {
-                            actionListener.actionPerformed(e);
-                        }
+            // the existing entry for every spec, and where it is now (-1 if there is none)
+            final int specsSize = specs.size();
+            final Entry[] matched = new Entry[specsSize];
+            final int[] positions = new int[specsSize];
+
+            for (int i = 0; i < specsSize; i++) {
+                final EntrySpec spec = specs.get(i);
+                final Entry entry = byKey.remove(spec.key);
+
+                if (entry != null && spec.matches(entry)) {
+                    matched[i] = entry;
+                    positions[i] = snapshot.indexOf(entry);
+                }
+                else {
+                    positions[i] = -1;
+                }
+            }
+
+            // the most entries that are already in the right order stay where they are. Everything else moves
+            final boolean[] stays = longestIncreasing(positions);
+
+            final Set<Entry> keep = new HashSet<Entry>();
+            for (int i = 0; i < specsSize; i++) {
+                if (matched[i] != null) {
+                    keep.add(matched[i]);
+                }
+            }
+
+            for (int i = to - 1; i >= from; i--) {
+                final Entry entry = snapshot.get(i);
+                if (!keep.contains(entry)) {
+                    reconciledSpecs.remove(entry);
+                    removeEntry(entry);
+                }
+            }
+
+            final List<Entry> entries = new ArrayList<Entry>(specsSize);
+
+            // every entry that does not stay is put right after the entry of the previous spec, which is already in order
+            for (int i = 0; i < specsSize; i++) {
+                final EntrySpec spec = specs.get(i);
+                final Entry previous = i > 0 ? entries.get(i - 1) : null;
+
+                Entry entry = matched[i];
+                if (entry == null) {
+                    entry = create(spec);
+                    insertEntry(entry, positionAfter(previous, from));
+                }
+                else {
+                    if (!stays[i]) {
+                        moveEntry(entry, previous, from);
                     }
-                };
-                checkbox.setCallback(actionListener);
+
+                    update(entry, spec, reconciledSpecs.get(entry));
+                }
+
+                if (entry instanceof Menu) {
+                    ((Menu) entry).reconcile_(spec.children);
+                }
+
+                // a copy, because the spec can be changed (and reconciled again) by the caller
+                reconciledSpecs.put(entry, spec.copy());
+                entries.add(entry);
             }
+
+            return entries;
         }
+    }
 
-        checkbox.setEnabled(entry.isEnabled());
-        checkbox.setChecked(entry.getState());
-        checkbox.setShortcut(entry.getMnemonic());
-        checkbox.setText(entry.getText());
+    /**
+     * Replaces all of the entries of this menu (except the status) with the specified entries, in order.
+     * <p>
+     * Readers of this menu see either all of the previous entries, or all of the new ones, and everything is applied as ONE update of
+     * the native menu, the same as {@link #edit(Edit)}. Entries that are already in this menu are kept (the most entries that are
+     * already in the right order stay where they are, and the rest are moved), entries that are not in the collection are removed.
+     */
+    public
+    void replaceAll(final Collection<? extends Entry> entries) {
+        final List<Entry> copy = new ArrayList<Entry>(entries);
+
+        edit(new Edit() {
+            @Override
+            public
+            void edit(final Menu menu) {
+                replaceAll_(copy);
+            }
+        });
+    }
 
-        add(checkbox);
-        return this;
+    private
+    void replaceAll_(final List<Entry> entries) {
+        final MenuEntries snapshot = menuEntries;
+        replaceRange(snapshot.start(), snapshot.size(), entries);
     }
 
     /**
-     * Adds a JMenuItem entry to this menu. Because this is a conversion, the JMenuItem is no longer valid after this action.
+     * Replaces the entries from 'from' (inclusive) to 'to' (exclusive) with the specified entries. Must be called inside of an edit.
+     * <p>
+     * An entry can only be in one place, so duplicates are removed from the list, and an entry that is somewhere else (in another menu, or
+     * in this menu outside of the range) is moved out of there first.
+     *
+     * @return where the entries start now. This is less than 'from' if entries before the range were moved into it.
      */
-    public final
-    Menu add(final JMenuItem entry) {
-        MenuItem item = new MenuItem();
+    int replaceRange(int from, int to, final List<Entry> entries) {
+        final Set<Entry> unique = new HashSet<Entry>(entries.size());
+        final List<Entry> uniqueEntries = new ArrayList<Entry>(entries.size());
+
+        for (int i = 0, size = entries.size(); i < size; i++) {
+            final Entry entry = entries.get(i);
+            if (!unique.add(entry)) {
+                continue;
+            }
+            uniqueEntries.add(entry);
 
-        final ActionListener[] actionListeners = entry.getActionListeners();
-        //noinspection Duplicates
-        if (actionListeners != null) {
-            if (actionListeners.length == 1) {
-                item.setCallback(actionListeners[0]);
-            } else {
-                ActionListener actionListener = new ActionListener() {
-                    @Override
-                    public
-                    void actionPerformed(final ActionEvent e) {
-                        for (ActionListener actionListener : actionListeners) {
-                            actionListener.actionPerformed(e);
-                        }
+            final Menu owner = entry.owner;
+            if (owner != null && owner != this) {
+                owner.take(entry);
+            }
+            else if (owner == this) {
+                final int index = menuEntries.indexOf(entry);
+
+                if (index >= 0 && (index < from || index >= to)) {
+                    take(entry);
+
+                    if (index < from) {
+                        from--;
+                        to--;
                     }
-                };
-                item.setCallback(actionListener);
+                }
             }
+
+            entry.owner = this;
         }
 
-        item.setEnabled(entry.isEnabled());
+        if (uniqueEntries.size() != entries.size()) {
+            entries.clear();
+            entries.addAll(uniqueEntries);
+        }
 
-        Icon icon = entry.getIcon();
-        BufferedImage bimage = new BufferedImage(icon.getIconWidth(), icon.getIconHeight(), BufferedImage.TYPE_INT_ARGB);
-        item.setImage(bimage);
+        final MenuEntries previous;
 
-        item.setShortcut(entry.getMnemonic());
-        item.setText(entry.getText());
+        synchronized (entriesLock) {
+            previous = menuEntries;
 
-        add(item);
-        return this;
+            final List<Entry> newEntries = new ArrayList<Entry>(previous.size() - (to - from) + entries.size());
+            for (int i = 0; i < from; i++) {
+                newEntries.add(previous.get(i));
+            }
+            newEntries.addAll(entries);
+            for (int i = to, size = previous.size(); i < size; i++) {
+                newEntries.add(previous.get(i));
+            }
+
+            menuEntries = MenuEntries.of(newEntries);
+        }
+
+        // where each entry is now (-1 if it is new)
+        final int size = entries.size();
+        final int[] positions = new int[size];
+        for (int i = 0; i < size; i++) {
+            final int position = previous.indexOf(entries.get(i));
+            positions[i] = position >= from && position < to ? position : -1;
+        }
+
+        final boolean[] stays = longestIncreasing(positions);
+
+        final Set<Entry> kept = new HashSet<Entry>(entries);
+        final Set<Entry> staying = new HashSet<Entry>();
+        for (int i = 0; i < size; i++) {
+            if (stays[i]) {
+                staying.add(entries.get(i));
+            }
+        }
+
+        for (int i = to - 1; i >= from; i--) {
+            final Entry entry = previous.get(i);
+
+            if (!kept.contains(entry)) {
+                entry.remove();
+            }
+            else if (!staying.contains(entry)) {
+                // it is added again (in the right position) below
+                entry.detach();
+            }
+        }
+
+        final MenuPeer menuPeer = (MenuPeer) peer;
+        if (menuPeer == null) {
+            // nothing native to update
+            return from;
+        }
+
+        // everything before 'i' is already in its final position, so this inserts exactly where it belongs
+        for (int i = 0; i < size; i++) {
+            if (!stays[i]) {
+                menuPeer.add(this, entries.get(i), from + i);
+            }
+        }
+
+        return from;
     }
 
     /**
-     * Adds a JSeparator entry to this menu. Because this is a conversion, the JSeparator is no longer valid after this action.
+     * Takes the entry out of this menu without changing it (the same as when it is moved), so it can be added somewhere else.
      */
-    public final
-    Menu add(final JSeparator entry) {
-        Separator separator = new Separator();
+    private
+    void take(final Entry entry) {
+        synchronized (entriesLock) {
+            final MenuEntries snapshot = menuEntries;
+
+            final int index = snapshot.indexOf(entry);
+            if (index < 0) {
+                return;
+            }
 
-        add(separator);
-        return this;
+            menuEntries = snapshot.remove(index);
+        }
+
+        entry.detach();
     }
 
     /**
-     * Adds a menu entry, separator, or sub-menu to this menu.
+     * @return which of the positions are part of the longest increasing sequence of them (ignoring -1)
      */
-    public
-    <T extends Entry> T  add(final T entry, int index) {
-        synchronized (menuEntries) {
-            // access on this object must be synchronized for object visibility
-            if (index == -1) {
-                menuEntries.add(entry);
-            } else {
-                if (!menuEntries.isEmpty() && menuEntries.get(0) instanceof Status) {
-                    // the "status" menu entry is ALWAYS first
-                    index++;
+    private static
+    boolean[] longestIncreasing(final int[] positions) {
+        final int length = positions.length;
+
+        // tails[k] is the index of the smallest last position of an increasing sequence of length k + 1
+        final int[] tails = new int[length];
+        final int[] previous = new int[length];
+        int count = 0;
+
+        for (int i = 0; i < length; i++) {
+            final int position = positions[i];
+            if (position < 0) {
+                continue;
+            }
+
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (positions[tails[mid]] < position) {
+                    low = mid + 1;
+                }
+                else {
+                    high = mid;
+                }
+            }
+
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+
+            if (low == count) {
+                count++;
+            }
+        }
+
+        final boolean[] result = new boolean[length];
+
+        int i = count > 0 ? tails[count - 1] : -1;
+        while (i >= 0) {
+            result[i] = true;
+            i = previous[i];
+        }
+
+        return result;
+    }
+
+    private static
+    Entry create(final EntrySpec spec) {
+        final Entry entry;
+
+        switch (spec.type) {
+            case CHECKBOX:
+                entry = new Checkbox();
+                break;
+            case SEPARATOR:
+                entry = new Separator();
+                break;
+            case MENU:
+                entry = new Menu();
+                break;
+            default:
+                entry = new MenuItem();
+                break;
+        }
+
+        entry.setKey(spec.key);
+
+        // nothing is native yet, so this only sets the values
+        update(entry, spec, null);
+        return entry;
+    }
+
+    /**
+     * Only changes what is different from the previous spec (everything, if there is none)
+     */
+    private static
+    void update(final Entry entry, final EntrySpec spec, final EntrySpec previous) {
+        if (entry instanceof MenuItem) {
+            final MenuItem item = (MenuItem) entry;
+
+            if (previous == null || !isSame(previous.text, spec.text)) {
+                item.setText(spec.text);
+            }
+            if (previous == null || !isSame(previous.image, spec.image)) {
+                if (spec.image == null) {
+                    item.setImage_(null);
+                }
+                else {
+                    item.setImage(spec.image);
                 }
-                menuEntries.add(index, entry);
+            }
+            if (previous == null || previous.enabled != spec.enabled) {
+                item.setEnabled(spec.enabled);
+            }
+            if (previous == null || previous.callback != spec.callback) {
+                item.setCallback(spec.callback);
+            }
+            if (previous == null || previous.shortcut != spec.shortcut) {
+                item.setShortcut(spec.shortcut);
             }
         }
+        else if (entry instanceof Checkbox) {
+            final Checkbox checkbox = (Checkbox) entry;
+
+            if (previous == null || !isSame(previous.text, spec.text)) {
+                checkbox.setText(spec.text);
+            }
+            if (previous == null || previous.enabled != spec.enabled) {
+                checkbox.setEnabled(spec.enabled);
+            }
+            if (previous == null || previous.checked != spec.checked) {
+                checkbox.setChecked(spec.checked);
+            }
+            if (previous == null || previous.callback != spec.callback) {
+                checkbox.setCallback(spec.callback);
+            }
+            if (previous == null || previous.shortcut != spec.shortcut) {
+                checkbox.setShortcut(spec.shortcut);
+            }
+        }
+    }
+
+    private static
+    boolean isSame(final Object a, final Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * Adds the entry at the specified position (including the status)
+     */
+    void insertEntry(final Entry entry, final int index) {
+        entry.owner = this;
+
+        synchronized (entriesLock) {
+            menuEntries = menuEntries.add(index, entry);
+        }
 
         if (peer != null) {
             ((MenuPeer) peer).add(this, entry, index);
         }
+    }
 
-        return entry;
+    /**
+     * @return the position right after the entry, or 'start' if there is no entry
+     */
+    private
+    int positionAfter(final Entry entry, final int start) {
+        if (entry == null) {
+            return start;
+        }
+
+        return menuEntries.indexOf(entry) + 1;
+    }
+
+    /**
+     * Moves the entry (which is in this menu) to right after the previous entry, or to 'start' if there is no previous entry. The
+     * native entry is moved as well, instead of being re-created.
+     */
+    private
+    void moveEntry(final Entry entry, final Entry previous, final int start) {
+        final int index;
+        final int newIndex;
+
+        synchronized (entriesLock) {
+            final MenuEntries snapshot = menuEntries;
+
+            index = snapshot.indexOf(entry);
+            final MenuEntries removed = snapshot.remove(index);
+
+            newIndex = previous == null ? start : removed.indexOf(previous) + 1;
+            menuEntries = removed.add(newIndex, entry);
+        }
+
+        if (peer != null) {
+            ((MenuPeer) peer).move(index, newIndex);
+        }
+    }
+
+    /**
+     * Removes the entry, without removing any separators that end up at the top/bottom of the menu
+     */
+    private
+    void removeEntry(final Entry entry) {
+        synchronized (entriesLock) {
+            final MenuEntries snapshot = menuEntries;
+
+            final int index = snapshot.indexOf(entry);
+            if (index < 0) {
+                return;
+            }
+
+            menuEntries = snapshot.remove(index);
+        }
+
+        entry.remove();
+    }
+
+    /**
+     * Gets the section with the specified name, which is created (empty, at the end of this menu) if it does not exist yet.
+     * <p>
+     * A section is a contiguous range of entries that can be changed (replaced, reconciled, etc) without touching the entries around it.
+     * Entries that are added to this menu later do not become part of the section.
+     */
+    public
+    Section section(final String name) {
+        synchronized (sections) {
+            Section section = sections.get(name);
+
+            if (section == null) {
+                final MenuEntries snapshot = menuEntries;
+                final Entry anchor = snapshot.size() > snapshot.start() ? snapshot.get(snapshot.size() - 1) : null;
+
+                section = new Section(this, name, anchor);
+                sections.put(name, section);
+            }
+
+            return section;
+        }
+    }
+
+    /**
+     * Called by the tray (on its event thread) just before this sub-menu is shown, if the tray is able to tell. See
+     * {@link MenuPeer#notifiesShowing()}
+     */
+    public
+    void onShowing() {
+        // nothing by default
     }
 
     /**
@@ -309,21 +783,7 @@ class Menu extends MenuItem {
      */
     public
     Entry getLast() {
-        synchronized (menuEntries) {
-            // access on this object must be synchronized for object visibility
-            if (!menuEntries.isEmpty()) {
-                Entry entry;
-                for (int i = menuEntries.size() - 1; i >= 0; i--) {
-                    entry = menuEntries.get(i);
-
-                    if (!(entry instanceof Separator || entry instanceof Status)) {
-                        return entry;
-                    }
-                }
-            }
-        }
-
-        return null;
+        return menuEntries.getLastItem();
     }
 
     /**
@@ -333,29 +793,65 @@ class Menu extends MenuItem {
      */
     public
     Entry get(final int menuIndex) {
-        if (menuIndex < 0) {
-            return null;
-        }
+        return menuEntries.getItem(menuIndex);
+    }
 
-        synchronized (menuEntries) {
-            // access on this object must be synchronized for object visibility
-            if (!menuEntries.isEmpty()) {
-                int count = 0;
-                for (Entry entry : menuEntries) {
-                    if (entry instanceof Separator || entry instanceof Status) {
-                        continue;
-                    }
+    /**
+     * Gets all of the entries of this menu (including status and separators), as they are at this moment. This does not change when the
+     * menu changes, and cannot be modified.
+     */
+    public
+    List<Entry> getEntries() {
+        return menuEntries.asList();
+    }
 
-                    if (count == menuIndex) {
-                        return entry;
-                    }
+    /**
+     * Finds an entry by the keys (see {@link Entry#setKey(String)}) of it and its parent sub-menus, separated by '/'. For example,
+     * "hosts/web-01/restart" is the entry with the key "restart", in the sub-menu with the key "web-01", in the sub-menu with the key
+     * "hosts" of this menu.
+     * <p>
+     * Every menu keeps an index of the keys of its entries, so this does not depend on how many entries there are.
+     *
+     * @return the entry, or null if there is none
+     */
+    public
+    Entry find(final String path) {
+        Menu menu = this;
+        int start = 0;
 
-                    count++;
-                }
+        while (true) {
+            final int end = path.indexOf('/', start);
+            final String key = end < 0 ? path.substring(start) : path.substring(start, end);
+
+            final Entry entry = menu.menuEntries.getByKey(key, menu.keyVersion.get());
+            if (end < 0 || entry == null) {
+                return entry;
+            }
+
+            if (!(entry instanceof Menu)) {
+                return null;
             }
+
+            menu = (Menu) entry;
+            start = end + 1;
         }
+    }
 
-        return null;
+    /**
+     * Called when the key of one of our entries changes
+     */
+    void keyChanged() {
+        keyVersion.incrementAndGet();
+    }
+
+    /**
+     * Gets the position of a menu entry or sub-menu (zero-index), including status and separators.
+     *
+     * @return the position of the entry, or -1 if it is not in this menu
+     */
+    public
+    int indexOf(final Entry entry) {
+        return menuEntries.indexOf(entry);
     }
 
     /**
@@ -370,15 +866,13 @@ class Menu extends MenuItem {
         if (entry != null) {
             Entry toRemove = null;
 
-            synchronized (menuEntries) {
-                // access on this object must be synchronized for object visibility
-                for (Iterator<Entry> iterator = menuEntries.iterator(); iterator.hasNext(); ) {
-                    final Entry entry__ = iterator.next();
-                    if (entry__ == entry) {
-                        iterator.remove();
-                        toRemove = entry__;
-                        break;
-                    }
+            synchronized (entriesLock) {
+                final MenuEntries snapshot = menuEntries;
+
+                final int index = snapshot.indexOf(entry);
+                if (index >= 0) {
+                    menuEntries = snapshot.remove(index);
+                    toRemove = entry;
                 }
             }
             if (toRemove != null) {
@@ -388,12 +882,10 @@ class Menu extends MenuItem {
 
 
             // now check to see if a spacer is at the top/bottom of the list (and remove it if so. This is a recursive function.
-            synchronized (menuEntries) {
-                // access on this object must be synchronized for object visibility
-                if (!menuEntries.isEmpty()) {
-                    if (menuEntries.get(0) instanceof dorkbox.systemTray.Separator) {
-                        toRemove = menuEntries.get(0);
-                    }
+            MenuEntries snapshot = menuEntries;
+            if (!snapshot.isEmpty()) {
+                if (snapshot.get(0) instanceof dorkbox.systemTray.Separator) {
+                    toRemove = snapshot.get(0);
                 }
             }
             if (toRemove != null) {
@@ -403,12 +895,10 @@ class Menu extends MenuItem {
 
 
             // now check to see if a spacer is at the top/bottom of the list (and remove it if so. This is a recursive function.
-            synchronized (menuEntries) {
-                // access on this object must be synchronized for object visibility
-                if (!menuEntries.isEmpty()) {
-                    if (menuEntries.get(menuEntries.size()-1) instanceof dorkbox.systemTray.Separator) {
-                        toRemove = menuEntries.get(menuEntries.size() - 1);
-                    }
+            snapshot = menuEntries;
+            if (!snapshot.isEmpty()) {
+                if (snapshot.get(snapshot.size() - 1) instanceof dorkbox.systemTray.Separator) {
+                    toRemove = snapshot.get(snapshot.size() - 1);
                 }
             }
             if (toRemove != null) {
@@ -422,29 +912,67 @@ class Menu extends MenuItem {
      */
     public
     void clear() {
-        List<Entry> copy;
-        synchronized (menuEntries) {
-            // access on this object must be synchronized for object visibility
-            // a copy is made to prevent deadlocks from occurring when operating in different threads
-            // have to make copy because we are deleting all of them, and sub-menus remove themselves from parents
-            copy = new ArrayList<Entry>(menuEntries);
-            menuEntries.clear();
+        MenuEntries snapshot;
+        synchronized (entriesLock) {
+            // the snapshot does not change, so sub-menus removing themselves from us does not affect this
+            snapshot = menuEntries;
+            menuEntries = MenuEntries.EMPTY;
         }
 
-        for (Entry entry : copy) {
-            entry.remove();
+        for (int i = 0, size = snapshot.size(); i < size; i++) {
+            snapshot.get(i).remove();
         }
     }
 
 
+    @Override
+    void detach() {
+        // the children are added again (by bind) when this menu is added again
+        final MenuEntries snapshot = menuEntries;
+        for (int i = 0, size = snapshot.size(); i < size; i++) {
+            snapshot.get(i).detach();
+        }
+
+        super.detach();
+    }
+
+    @Override
+    void release() {
+        final MenuEntries snapshot;
+        synchronized (entriesLock) {
+            snapshot = menuEntries;
+            menuEntries = MenuEntries.EMPTY;
+        }
+
+        for (int i = 0, size = snapshot.size(); i < size; i++) {
+            snapshot.get(i).release();
+        }
+
+        super.release();
+    }
+
     /**
      *  This removes all menu entries from this menu AND this menu from it's parent
+     *  <p>
+     *  The entries (and sub-menus) are not removed one at a time. They are all detached from this menu at once, and then the native menu
+     *  is destroyed together with everything in it, in one pass.
      */
     @Override
     public
     void remove() {
-        clear();
+        final MenuEntries snapshot;
+        synchronized (entriesLock) {
+            snapshot = menuEntries;
+            menuEntries = MenuEntries.EMPTY;
+        }
+
+        // the native entries are destroyed with the native menu (by super.remove), so they do not have to be removed one at a time
+        for (int i = 0, size = snapshot.size(); i < size; i++) {
+            snapshot.get(i).release();
+        }
 
-        super.remove();
+        // not super.remove(), because clearing the text, image and callback first would be three more native updates for an entry that
+        // is about to be destroyed
+        detach();
     }
 }
@@ -0,0 +1,419 @@
+/*
+ * Copyright 2016 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable snapshot of the entries of a menu, indexed so that large menus do not have to be searched.
+ * <p>
+ * Besides the entries (in order), this has the list of "items" (everything that is not a separator or status), which is what
+ * {@link Menu#get(int)} uses, and the position of every entry (calculated the first time it is needed).
+ * <p>
+ * Changes create a new snapshot (copy-on-write), so a snapshot can be read by any thread without locking. The positions and keys are
+ * carried forward from one snapshot to the next, so adding or removing entries one at a time does not recalculate all of them every time.
+ */
+final
+class MenuEntries {
+    static final MenuEntries EMPTY = new MenuEntries(new Entry[0], new Entry[0], null, null);
+
+    private final Entry[] entries;
+
+    // the entries that are not separators or status, in order
+    private final Entry[] items;
+
+    // where every entry is. Created when it is first needed (or carried forward from the previous snapshot), and never changed afterwards
+    private volatile Positions positions;
+
+    // key -> entry. Created when it is first needed (or carried forward from the previous snapshot), and again if the key of an entry of
+    // the menu has changed since
+    private volatile KeyIndex keys;
+
+    /**
+     * The entry for every key of a snapshot. The same as {@link Positions}, the key index of the next snapshot is the same map, plus the
+     * key of the entry that was added or removed. Once there are too many changes to go through, the map is recalculated.
+     */
+    private static final
+    class KeyIndex {
+        // the key version of the menu (see Menu#keyChanged()) that this was calculated for
+        final int version;
+
+        // key -> entry, in the snapshot that this was calculated for
+        private final Map<String, Entry> map;
+
+        // the changes since then, in order. The entry is null if the entry with that key was removed
+        private final String[] changedKeys;
+        private final Entry[] changedEntries;
+
+        KeyIndex(final int version, final Map<String, Entry> map, final String[] changedKeys, final Entry[] changedEntries) {
+            this.version = version;
+            this.map = map;
+            this.changedKeys = changedKeys;
+            this.changedEntries = changedEntries;
+        }
+
+        static
+        KeyIndex of(final int version, final Entry[] entries) {
+            final Map<String, Entry> map = new HashMap<String, Entry>();
+            for (int i = 0; i < entries.length; i++) {
+                final String key = entries[i].getKey();
+                if (key != null) {
+                    map.put(key, entries[i]);
+                }
+            }
+
+            return new KeyIndex(version, map, new String[0], new Entry[0]);
+        }
+
+        /**
+         * @return the key index after the entry was added (or removed), or null if there are already too many changes and the key index
+         *         should be recalculated instead
+         */
+        KeyIndex with(final Entry entry, final boolean added, final int size) {
+            final String key = entry.getKey();
+            if (key == null || (!added && get(key) != entry)) {
+                // no key, or a different entry has it
+                return this;
+            }
+
+            final int count = changedKeys.length;
+            if (count >= Math.max(16, (int) Math.sqrt(size))) {
+                return null;
+            }
+
+            final String[] newKeys = Arrays.copyOf(changedKeys, count + 1);
+            final Entry[] newEntries = Arrays.copyOf(changedEntries, count + 1);
+            newKeys[count] = key;
+            newEntries[count] = added ? entry : null;
+
+            return new KeyIndex(version, map, newKeys, newEntries);
+        }
+
+        Entry get(final String key) {
+            // the most recent change wins
+            for (int i = changedKeys.length - 1; i >= 0; i--) {
+                if (changedKeys[i].equals(key)) {
+                    return changedEntries[i];
+                }
+            }
+
+            return map.get(key);
+        }
+    }
+
+    /**
+     * The position of every entry of a snapshot. The positions of the next snapshot are the same map, plus the entry that was added or
+     * removed, so they do not have to be recalculated. Once there are too many changes to go through, the map is recalculated.
+     */
+    private static final
+    class Positions {
+        // entry -> position, in the snapshot that this was calculated for
+        private final Map<Entry, Integer> map;
+
+        // the changes since then, in order. The entry is null if the entry at that position was removed, otherwise it was added there
+        private final int[] changedIndexes;
+        private final Entry[] changedEntries;
+
+        Positions(final Map<Entry, Integer> map, final int[] changedIndexes, final Entry[] changedEntries) {
+            this.map = map;
+            this.changedIndexes = changedIndexes;
+            this.changedEntries = changedEntries;
+        }
+
+        static
+        Positions of(final Entry[] entries) {
+            final Map<Entry, Integer> map = new HashMap<Entry, Integer>(entries.length * 2);
+            for (int i = 0; i < entries.length; i++) {
+                map.put(entries[i], i);
+            }
+
+            return new Positions(map, new int[0], new Entry[0]);
+        }
+
+        /**
+         * @return the positions after the entry was added at the index (or removed from it, if the entry is null), or null if there are
+         *         already too many changes and the positions should be recalculated instead
+         */
+        Positions with(final int index, final Entry entry, final int size) {
+            final int count = changedIndexes.length;
+
+            // going through the changes is slower than looking up the position, so this does not grow with the menu (it is recalculated
+            // every sqrt(size) changes instead of every change)
+            if (count >= Math.max(16, (int) Math.sqrt(size))) {
+                return null;
+            }
+
+            final int[] newIndexes = Arrays.copyOf(changedIndexes, count + 1);
+            final Entry[] newEntries = Arrays.copyOf(changedEntries, count + 1);
+            newIndexes[count] = index;
+            newEntries[count] = entry;
+
+            return new Positions(map, newIndexes, newEntries);
+        }
+
+        int indexOf(final Entry entry) {
+            final Integer position = map.get(entry);
+            int index = position == null ? -1 : position;
+
+            for (int i = 0; i < changedIndexes.length; i++) {
+                final int changedIndex = changedIndexes[i];
+                final Entry changedEntry = changedEntries[i];
+
+                if (changedEntry == entry) {
+                    index = changedIndex;
+                    continue;
+                }
+
+                if (index < 0) {
+                    // not in the menu (yet)
+                    continue;
+                }
+
+                if (changedEntry != null) {
+                    // added before it
+                    if (changedIndex <= index) {
+                        index++;
+                    }
+                }
+                else if (changedIndex == index) {
+                    // it was removed
+                    index = -1;
+                }
+                else if (changedIndex < index) {
+                    // removed before it
+                    index--;
+                }
+            }
+
+            return index;
+        }
+    }
+
+    private static
+    boolean isItem(final Entry entry) {
+        return !(entry instanceof Separator || entry instanceof Status);
+    }
+
+    private
+    MenuEntries(final Entry[] entries, final Entry[] items, final Positions positions, final KeyIndex keys) {
+        this.entries = entries;
+        this.items = items;
+        this.positions = positions;
+        this.keys = keys;
+    }
+
+    /**
+     * @return a snapshot of the entries, in order
+     */
+    static
+    MenuEntries of(final List<Entry> entries) {
+        final Entry[] newEntries = entries.toArray(new Entry[0]);
+
+        int itemCount = 0;
+        for (int i = 0; i < newEntries.length; i++) {
+            if (isItem(newEntries[i])) {
+                itemCount++;
+            }
+        }
+
+        final Entry[] newItems = new Entry[itemCount];
+        for (int i = 0, j = 0; i < newEntries.length; i++) {
+            if (isItem(newEntries[i])) {
+                newItems[j++] = newEntries[i];
+            }
+        }
+
+        return new MenuEntries(newEntries, newItems, null, null);
+    }
+
+    /**
+     * @return the position of the first entry after the status (the status is ALWAYS first)
+     */
+    int start() {
+        return entries.length > 0 && entries[0] instanceof Status ? 1 : 0;
+    }
+
+    int size() {
+        return entries.length;
+    }
+
+    boolean isEmpty() {
+        return entries.length == 0;
+    }
+
+    Entry get(final int index) {
+        return entries[index];
+    }
+
+    /**
+     * @return the entries, in order. This cannot be modified
+     */
+    List<Entry> asList() {
+        return Collections.unmodifiableList(Arrays.asList(entries));
+    }
+
+    /**
+     * @return the position of the entry, or -1 if it is not in this menu
+     */
+    int indexOf(final Entry entry) {
+        Positions positions = this.positions;
+
+        if (positions == null) {
+            // if several threads get here at the same time, they all create the same thing
+            positions = Positions.of(entries);
+            this.positions = positions;
+        }
+
+        return positions.indexOf(entry);
+    }
+
+    /**
+     * @return the positions for the next snapshot, after the entry was added at the index (or removed from it, if the entry is null)
+     */
+    private
+    Positions nextPositions(final int index, final Entry entry, final int size) {
+        final Positions positions = this.positions;
+        if (positions == null) {
+            // nobody needed them, so they are only calculated if the next snapshot needs them
+            return null;
+        }
+
+        return positions.with(index, entry, size);
+    }
+
+    /**
+     * @return the key index for the next snapshot, after the entry was added (or removed)
+     */
+    private
+    KeyIndex nextKeys(final Entry entry, final boolean added, final int size) {
+        final KeyIndex keys = this.keys;
+        if (keys == null) {
+            // nobody needed it, so it is only calculated if the next snapshot needs it
+            return null;
+        }
+
+        return keys.with(entry, added, size);
+    }
+
+    /**
+     * @param version the key version of the menu (see {@link Menu#keyChanged()}), so that changed keys are noticed
+     *
+     * @return the entry with the specified key, or null if there is none
+     */
+    Entry getByKey(final String key, final int version) {
+        KeyIndex keys = this.keys;
+
+        if (keys == null || keys.version != version) {
+            // if several threads get here at the same time, they all create the same thing
+            keys = KeyIndex.of(version, entries);
+            this.keys = keys;
+        }
+
+        return keys.get(key);
+    }
+
+    /**
+     * @return the item (ignoring status and separators) at the specified index, or null if there is none
+     */
+    Entry getItem(final int index) {
+        if (index < 0 || index >= items.length) {
+            return null;
+        }
+
+        return items[index];
+    }
+
+    /**
+     * @return the last item (ignoring status and separators), or null if there is none
+     */
+    Entry getLastItem() {
+        if (items.length == 0) {
+            return null;
+        }
+
+        return items[items.length - 1];
+    }
+
+    /**
+     * @return a new snapshot, with the entry inserted at the specified position
+     */
+    MenuEntries add(final int index, final Entry entry) {
+        final Entry[] newEntries = new Entry[entries.length + 1];
+        System.arraycopy(entries, 0, newEntries, 0, index);
+        newEntries[index] = entry;
+        System.arraycopy(entries, index, newEntries, index + 1, entries.length - index);
+
+        final Positions newPositions = nextPositions(index, entry, newEntries.length);
+        final KeyIndex newKeys = nextKeys(entry, true, newEntries.length);
+
+        if (!isItem(entry)) {
+            return new MenuEntries(newEntries, items, newPositions, newKeys);
+        }
+
+        // how many items are before the new one
+        int itemIndex = 0;
+        if (index == entries.length) {
+            itemIndex = items.length;
+        }
+        else {
+            for (int i = 0; i < index; i++) {
+                if (isItem(entries[i])) {
+                    itemIndex++;
+                }
+            }
+        }
+
+        final Entry[] newItems = new Entry[items.length + 1];
+        System.arraycopy(items, 0, newItems, 0, itemIndex);
+        newItems[itemIndex] = entry;
+        System.arraycopy(items, itemIndex, newItems, itemIndex + 1, items.length - itemIndex);
+
+        return new MenuEntries(newEntries, newItems, newPositions, newKeys);
+    }
+
+    /**
+     * @return a new snapshot, without the entry at the specified position
+     */
+    MenuEntries remove(final int index) {
+        final Entry entry = entries[index];
+
+        final Entry[] newEntries = new Entry[entries.length - 1];
+        System.arraycopy(entries, 0, newEntries, 0, index);
+        System.arraycopy(entries, index + 1, newEntries, index, entries.length - index - 1);
+
+        final Positions newPositions = nextPositions(index, null, newEntries.length);
+        final KeyIndex newKeys = nextKeys(entry, false, newEntries.length);
+
+        if (!isItem(entry)) {
+            return new MenuEntries(newEntries, items, newPositions, newKeys);
+        }
+
+        int itemIndex = items.length - 1;
+        while (items[itemIndex] != entry) {
+            itemIndex--;
+        }
+
+        final Entry[] newItems = new Entry[items.length - 1];
+        System.arraycopy(items, 0, newItems, 0, itemIndex);
+        System.arraycopy(items, itemIndex + 1, newItems, itemIndex, items.length - itemIndex - 1);
+
+        return new MenuEntries(newEntries, newItems, newPositions, newKeys);
+    }
+}
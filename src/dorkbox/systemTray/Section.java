@@ -0,0 +1,204 @@
+/*
+ * Copyright 2016 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A named, contiguous range of entries inside of a menu (see {@link Menu#section(String)}), for the parts of a menu that change (a list
+ * of jobs, hosts, etc) between the parts that do not (Settings, Quit, etc).
+ * <p>
+ * Changes to a section only change the entries of that section, the entries around it are not touched. The entries of a section should
+ * only be added or removed through the section.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final
+class Section {
+    private final Menu menu;
+    private final String name;
+
+    // the entries of this section, in order. Only changed inside of an edit of the menu (on the event thread)
+    private volatile Entry[] entries = new Entry[0];
+
+    // the entry just before this section (null if it is at the start of the menu), so an empty section still knows where it is
+    private volatile Entry anchor;
+
+    Section(final Menu menu, final String name, final Entry anchor) {
+        this.menu = menu;
+        this.name = name;
+        this.anchor = anchor;
+    }
+
+    public
+    String getName() {
+        return name;
+    }
+
+    public
+    Menu getMenu() {
+        return menu;
+    }
+
+    /**
+     * @return the entries of this section, as they are at this moment. This cannot be modified.
+     */
+    public
+    List<Entry> getEntries() {
+        return Collections.unmodifiableList(live(menu.menuEntries));
+    }
+
+    /**
+     * Adds an entry to the end of this section
+     */
+    public
+    <T extends Entry> T add(final T entry) {
+        menu.edit(new Menu.Edit() {
+            @Override
+            public
+            void edit(final Menu menu) {
+                synchronized (Section.this) {
+                    final MenuEntries snapshot = menu.menuEntries;
+                    final int[] range = range(snapshot);
+
+                    menu.insertEntry(entry, range[1]);
+
+                    final List<Entry> list = live(snapshot);
+                    list.add(entry);
+                    changed(list, range[0]);
+                }
+            }
+        });
+
+        return entry;
+    }
+
+    /**
+     * Replaces the entries of this section with the specified entries, in order. The same as {@link Menu#replaceAll(Collection)}, but
+     * only for this section.
+     */
+    public
+    void replaceAll(final Collection<? extends Entry> entries) {
+        final List<Entry> copy = new ArrayList<Entry>(entries);
+
+        menu.edit(new Menu.Edit() {
+            @Override
+            public
+            void edit(final Menu menu) {
+                synchronized (Section.this) {
+                    final int[] range = range(menu.menuEntries);
+
+                    final int start = menu.replaceRange(range[0], range[1], copy);
+                    changed(copy, start);
+                }
+            }
+        });
+    }
+
+    /**
+     * Changes the entries of this section to match the specs. The same as {@link Menu#reconcile(List)}, but only for this section.
+     */
+    public
+    void reconcile(final List<EntrySpec> specs) {
+        final List<EntrySpec> copy = new ArrayList<EntrySpec>(specs);
+
+        menu.edit(new Menu.Edit() {
+            @Override
+            public
+            void edit(final Menu menu) {
+                synchronized (Section.this) {
+                    final int[] range = range(menu.menuEntries);
+
+                    final List<Entry> entries = menu.reconcileRange(range[0], range[1], copy);
+                    changed(entries, range[0]);
+                }
+            }
+        });
+    }
+
+    /**
+     * Removes all of the entries of this section. The section stays where it is, so entries can be added to it again.
+     */
+    public
+    void clear() {
+        replaceAll(Collections.<Entry>emptyList());
+    }
+
+    /**
+     * @return the entries of this section that are still in the menu
+     */
+    private
+    List<Entry> live(final MenuEntries snapshot) {
+        final Entry[] entries = this.entries;
+
+        final List<Entry> list = new ArrayList<Entry>(entries.length + 1);
+        for (Entry entry : entries) {
+            if (snapshot.indexOf(entry) >= 0) {
+                list.add(entry);
+            }
+        }
+
+        return list;
+    }
+
+    /**
+     * @return where this section starts (inclusive) and ends (exclusive) in the menu
+     */
+    private
+    int[] range(final MenuEntries snapshot) {
+        int start = -1;
+        int end = -1;
+
+        for (Entry entry : entries) {
+            final int position = snapshot.indexOf(entry);
+            if (position >= 0) {
+                if (start < 0 || position < start) {
+                    start = position;
+                }
+                if (position + 1 > end) {
+                    end = position + 1;
+                }
+            }
+        }
+
+        if (start >= 0) {
+            return new int[] {start, end};
+        }
+
+        // empty, so it is right after the anchor
+        if (anchor == null) {
+            start = snapshot.start();
+        }
+        else {
+            final int position = snapshot.indexOf(anchor);
+
+            // the anchor has been removed from the menu, so this is now at the end
+            start = position >= 0 ? position + 1 : snapshot.size();
+        }
+
+        return new int[] {start, start};
+    }
+
+    private
+    void changed(final List<Entry> entries, final int start) {
+        this.entries = entries.toArray(new Entry[0]);
+
+        final MenuEntries snapshot = menu.menuEntries;
+        anchor = start > snapshot.start() ? snapshot.get(start - 1) : null;
+    }
+}
@@ -15,7 +15,6 @@
  */
 package dorkbox.systemTray;
 
-import java.awt.Component;
 import java.awt.GraphicsEnvironment;
 import java.awt.Image;
 import java.awt.image.BufferedImage;
@@ -29,11 +28,7 @@ import java.net.URL;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.imageio.stream.ImageInputStream;
-import javax.swing.Icon;
-import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JMenu;
-import javax.swing.JMenuItem;
-import javax.swing.JSeparator;
 import javax.swing.SwingUtilities;
 
 import org.slf4j.Logger;
@@ -152,6 +147,13 @@ class SystemTray {
      */
     public static boolean AUTO_FIX_INCONSISTENCIES = true;
 
+    @Property
+    /**
+     * Forces native GTK menus to be destroyed and recreated every time an entry is added or removed. By default, entries are inserted
+     * and removed in place, and this is only done for the AppIndicator versions that need it.
+     */
+    public static boolean FORCE_GTK_MENU_REBUILD = false;
+
     @Property
     /**
      * This property is provided for debugging any errors in the logic used to determine the system-tray type.
@@ -992,25 +994,12 @@ class SystemTray {
         Menu menu = systemTrayMenu;
 
         if (menu != null) {
-            Icon icon = jMenu.getIcon();
-            BufferedImage bimage = new BufferedImage(icon.getIconWidth(), icon.getIconHeight(), BufferedImage.TYPE_INT_ARGB);
-            setImage(bimage);
-
-            Component[] menuComponents = jMenu.getMenuComponents();
-            for (Component c : menuComponents) {
-                if (c instanceof JMenu) {
-                    menu.add((JMenu) c);
-                }
-                else if (c instanceof JCheckBoxMenuItem) {
-                    menu.add((JCheckBoxMenuItem) c);
-                }
-                else if (c instanceof JMenuItem) {
-                    menu.add((JMenuItem) c);
-                }
-                else if (c instanceof JSeparator) {
-                    menu.add((JSeparator) c);
-                }
+            BufferedImage image = JMenuImporter.paint(jMenu.getIcon(), jMenu);
+            if (image != null) {
+                setImage(image);
             }
+
+            menu.addImported(JMenuImporter.importComponents(jMenu.getMenuComponents()));
         }
 
         return menu;
@@ -1141,5 +1130,44 @@ class SystemTray {
             menu.setImage(imageStream);
         }
     }
+
+    /**
+     * Specifies the new image to set for the tray icon, directly from its pixels. This is meant for icons that change often (meters,
+     * progress, etc). See {@link Tray#setImagePixels(BufferedImage)}
+     *
+     * @param image the image to use. It should already be the size of the tray icon.
+     */
+    public
+    void setImagePixels(final BufferedImage image) {
+        if (image == null) {
+            throw new NullPointerException("image cannot be null!");
+        }
+
+        final Tray tray = systemTrayMenu;
+        if (tray != null) {
+            tray.setImagePixels(image);
+        }
+    }
+
+    /**
+     * Specifies the new image to set for the tray icon, directly from its pixels. This is meant for icons that change often (meters,
+     * progress, etc). See {@link Tray#setImagePixels(int, int, int[])}
+     *
+     * @param argb width * height pixels, one row after another, in the same format as {@link BufferedImage#TYPE_INT_ARGB}
+     */
+    public
+    void setImagePixels(final int width, final int height, final int[] argb) {
+        if (argb == null) {
+            throw new NullPointerException("argb cannot be null!");
+        }
+        if (argb.length < width * height) {
+            throw new IllegalArgumentException("argb must have width * height pixels!");
+        }
+
+        final Tray tray = systemTrayMenu;
+        if (tray != null) {
+            tray.setImagePixels(width, height, argb);
+        }
+    }
 }
 
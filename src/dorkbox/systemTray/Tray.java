@@ -16,6 +16,7 @@
 package dorkbox.systemTray;
 
 import java.awt.Image;
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.InputStream;
 import java.net.URL;
@@ -57,11 +58,9 @@ class Tray extends Menu {
         // status is ALWAYS at 0 index...
         Entry menuEntry = null;
 
-        synchronized (menuEntries) {
-            // access on this object must be synchronized for object visibility
-            if (!menuEntries.isEmpty()) {
-                menuEntry = menuEntries.get(0);
-            }
+        final MenuEntries snapshot = menuEntries;
+        if (!snapshot.isEmpty()) {
+            menuEntry = snapshot.get(0);
         }
 
         if (menuEntry instanceof Status) {
@@ -157,4 +156,44 @@ class Tray extends Menu {
     void setImage(final ImageInputStream imageStream) {
         setImage_(ImageUtils.resizeAndCache(ImageUtils.TRAY_SIZE, imageStream));
     }
+
+    /**
+     * Specifies the new image to set for the tray icon, directly from its pixels. This is meant for icons that change often (meters,
+     * progress, etc).
+     * <p>
+     * Trays that support it (GtkStatusIcon) show the pixels without writing or reading any files, and AppIndicator trays write them to a
+     * few files in a RAM-backed directory. In both cases {@link #getImage()} is not changed. All other trays cache the image, the same as
+     * {@link #setImage(Image)}.
+     *
+     * @param image the image to use. It should already be the size of the tray icon.
+     */
+    public
+    void setImagePixels(final BufferedImage image) {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+
+        setImagePixels(width, height, image.getRGB(0, 0, width, height, null, 0, width));
+    }
+
+    /**
+     * Specifies the new image to set for the tray icon, directly from its pixels. This is meant for icons that change often (meters,
+     * progress, etc).
+     * <p>
+     * Trays that support it (GtkStatusIcon) show the pixels without writing or reading any files, and AppIndicator trays write them to a
+     * few files in a RAM-backed directory. In both cases {@link #getImage()} is not changed. All other trays cache the image, the same as
+     * {@link #setImage(Image)}.
+     *
+     * @param width the width of the image. It should already be the size of the tray icon.
+     * @param height the height of the image. It should already be the size of the tray icon.
+     * @param argb width * height pixels, one row after another, in the same format as {@link BufferedImage#TYPE_INT_ARGB}. This must not
+     *             be changed afterwards.
+     */
+    public
+    void setImagePixels(final int width, final int height, final int[] argb) {
+        // is overridden by the trays that can use pixels directly
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, width, height, argb, 0, width);
+
+        setImage(image);
+    }
 }
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray;
+
+import java.util.Collections;
+import java.util.List;
+
+import dorkbox.systemTray.peer.ListPeer;
+
+/**
+ * A scrolling list of (possibly thousands of) rows, shown as a single entry in the menu. This is meant for very long menus, ie: "recent
+ * items".
+ * <p>
+ * Only the rows that are visible are rendered, so memory and how long the menu takes to open do not depend on how many rows there are.
+ * <p>
+ * This is only supported by the Swing UI. Native menus have no way to do this, and do not show it (a warning is logged).
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public
+class VirtualList extends Entry {
+    /**
+     * Called (the same as any other menu entry callback) when a row is clicked.
+     */
+    public
+    interface Callback {
+        void selected(VirtualList list, int index);
+    }
+
+    private volatile List<String> rows;
+    private volatile Callback callback;
+
+    private volatile int visibleRows = 15;
+    private volatile String prototypeRow = "MMMMMMMMMMMMMMMMMMMMMMMM";
+
+    public
+    VirtualList(final List<String> rows, final Callback callback) {
+        this.rows = rows != null ? rows : Collections.<String>emptyList();
+        this.callback = callback;
+    }
+
+    /**
+     * @param peer the platform specific implementation for all actions for this type
+     * @param parent the parent of this menu, null if the parent is the system tray
+     * @param systemTray the system tray (which is the object that sits in the system tray)
+     */
+    public
+    void bind(final ListPeer peer, final Menu parent, final SystemTray systemTray) {
+        super.bind(peer, parent, systemTray);
+
+        peer.setRows(this);
+    }
+
+    /**
+     * @return the rows of this list
+     */
+    public
+    List<String> getRows() {
+        return rows;
+    }
+
+    /**
+     * Specifies the new rows of this list. The list is used as-is (it is not copied), so it must not be changed afterwards.
+     */
+    public
+    void setRows(final List<String> rows) {
+        this.rows = rows != null ? rows : Collections.<String>emptyList();
+
+        if (peer != null) {
+            ((ListPeer) peer).setRows(this);
+        }
+    }
+
+    public
+    Callback getCallback() {
+        return callback;
+    }
+
+    public
+    void setCallback(final Callback callback) {
+        this.callback = callback;
+    }
+
+    /**
+     * @return how many rows are visible at once (the rest are scrolled to)
+     */
+    public
+    int getVisibleRows() {
+        return visibleRows;
+    }
+
+    /**
+     * Sets how many rows are visible at once. Must be set before this is added to a menu.
+     */
+    public
+    void setVisibleRows(final int visibleRows) {
+        this.visibleRows = Math.max(1, visibleRows);
+    }
+
+    /**
+     * @return the text used to size the rows, instead of measuring every row
+     */
+    public
+    String getPrototypeRow() {
+        return prototypeRow;
+    }
+
+    /**
+     * Sets the text used to size the rows (it should be as wide as the widest row), instead of measuring every row. Must be set before
+     * this is added to a menu.
+     */
+    public
+    void setPrototypeRow(final String prototypeRow) {
+        this.prototypeRow = prototypeRow;
+    }
+}
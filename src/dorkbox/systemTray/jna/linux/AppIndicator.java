@@ -260,4 +260,5 @@ class AppIndicator {
     public static native void app_indicator_set_status(AppIndicatorInstanceStruct self, int status);
     public static native void app_indicator_set_menu(AppIndicatorInstanceStruct self, Pointer menu);
     public static native void app_indicator_set_icon(AppIndicatorInstanceStruct self, String icon_name);
+    public static native void app_indicator_set_icon_theme_path(AppIndicatorInstanceStruct self, String icon_theme_path);
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.jna.linux;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Shows pixel frames on an AppIndicator through an {@link AppIndicatorIconRing}, so the frames are not written to the image cache (on
+ * disk). Only the most recent frame is shown, if they arrive faster than GTK can show them.
+ * <p>
+ * The swing and native AppIndicator trays only differ in what happens when an icon is shown.
+ */
+public abstract
+class AppIndicatorFrames {
+    // created when it is first needed
+    private AppIndicatorIconRing iconRing;
+    private boolean iconRingFailed = false;
+
+    // the icon name of the most recent frame, that has not been shown yet
+    private final AtomicReference<String> pendingIcon = new AtomicReference<String>();
+
+    /**
+     * @return the indicator, or null if it is gone (because the tray is shutting down)
+     */
+    protected abstract
+    AppIndicatorInstanceStruct getIndicator();
+
+    /**
+     * Sets the icon (by name) on the indicator. Only called while there is an indicator.
+     *
+     * ALWAYS CALLED ON THE EDT
+     */
+    protected abstract
+    void showIcon(String iconName);
+
+    /**
+     * Writes the pixels into the icon ring, and shows them. This does not have to be called on the dispatch thread.
+     *
+     * @param argb width * height pixels, in the same format as BufferedImage.TYPE_INT_ARGB
+     *
+     * @return false if there is no RAM-backed directory (or the frame could not be written), so the frame has to go through the image
+     *         cache instead.
+     */
+    public
+    boolean show(final int width, final int height, final int[] argb) {
+        final AppIndicatorIconRing ring = getIconRing();
+        final String iconName = ring != null ? ring.write(width, height, argb) : null;
+        if (iconName == null) {
+            return false;
+        }
+
+        if (pendingIcon.getAndSet(iconName) == null) {
+            Gtk.dispatch(new Runnable() {
+                @Override
+                public
+                void run() {
+                    String iconName = pendingIcon.getAndSet(null);
+                    if (iconName != null && getIndicator() != null) {
+                        showIcon(iconName);
+                    }
+                }
+            });
+        }
+
+        return true;
+    }
+
+    private synchronized
+    AppIndicatorIconRing getIconRing() {
+        if (iconRing == null && !iconRingFailed) {
+            iconRing = AppIndicatorIconRing.create();
+
+            if (iconRing == null) {
+                iconRingFailed = true;
+            }
+            else {
+                final String themePath = iconRing.getThemePath();
+                Gtk.dispatch(new Runnable() {
+                    @Override
+                    public
+                    void run() {
+                        AppIndicatorInstanceStruct indicator = getIndicator();
+                        if (indicator != null) {
+                            // so the icons in the ring can be used by name
+                            AppIndicator.app_indicator_set_icon_theme_path(indicator, themePath);
+                        }
+                    }
+                });
+            }
+        }
+
+        return iconRing;
+    }
+
+    /**
+     * Deletes the icon ring. No more frames are shown after this.
+     */
+    public synchronized
+    void delete() {
+        if (iconRing != null) {
+            iconRing.delete();
+            iconRing = null;
+        }
+
+        // no more frames after the indicator is gone
+        iconRingFailed = true;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2016 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.jna.linux;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import dorkbox.systemTray.SystemTray;
+
+/**
+ * A small, fixed number of icon files in a RAM-backed directory (tmpfs), for icons that change often.
+ * <p>
+ * AppIndicators can only show an icon by name (or by file), so every frame has to be written somewhere. Writing them to the image cache
+ * would hit the disk for every frame, and the cache would grow forever. Instead, only the most recent frames are kept in this directory,
+ * and the directory is added to the icon theme path of the indicator so the icons can be used by name.
+ * <p>
+ * Every frame gets a new icon name (names are never reused), because the indicator (and the panel) cache icons by name. Older files are
+ * deleted once there are more than a few of them, so the panel has time to read a frame before it is gone. A frame is written to a
+ * temporary file first and then renamed, so the panel never reads a file that is only partially written.
+ */
+public final
+class AppIndicatorIconRing {
+    private static final int RING_SIZE = 4;
+
+    private final File directory;
+
+    // the number of the next frame. Names are never reused, so this only ever increases
+    private long next = 0;
+
+    /**
+     * @return a new ring of icon files, or null if there is no RAM-backed directory we can use.
+     */
+    public static
+    AppIndicatorIconRing create() {
+        File base = null;
+
+        String runtimeDir = System.getenv("XDG_RUNTIME_DIR");
+        if (runtimeDir != null && canWrite(new File(runtimeDir))) {
+            base = new File(runtimeDir);
+        }
+        else if (canWrite(new File("/dev/shm"))) {
+            base = new File("/dev/shm");
+        }
+
+        if (base == null) {
+            return null;
+        }
+
+        try {
+            // unique per tray, so there are no conflicts with other instances
+            File directory = File.createTempFile("SystemTray", "", base);
+            if (!directory.delete() || !directory.mkdir()) {
+                return null;
+            }
+
+            // the directory is registered first, so that it is deleted last
+            directory.deleteOnExit();
+            return new AppIndicatorIconRing(directory);
+        } catch (IOException e) {
+            if (SystemTray.DEBUG) {
+                SystemTray.logger.debug("Unable to create the icon directory in '{}'", base, e);
+            }
+            return null;
+        }
+    }
+
+    private static
+    boolean canWrite(final File dir) {
+        return dir.isDirectory() && dir.canWrite();
+    }
+
+    private
+    AppIndicatorIconRing(final File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return the directory to add to the icon theme path of the indicator.
+     */
+    public
+    String getThemePath() {
+        return directory.getAbsolutePath();
+    }
+
+    /**
+     * Writes the pixels into a new file, and deletes the oldest file of the ring. This does not have to be called on the dispatch thread.
+     *
+     * @param argb width * height pixels, in the same format as BufferedImage.TYPE_INT_ARGB
+     *
+     * @return the icon name of the file, or null if it could not be written.
+     */
+    public synchronized
+    String write(final int width, final int height, final int[] argb) {
+        final long frame = next++;
+        final String name = getName(frame);
+
+        // not a .png, so the panel will never look at it
+        final File temp = new File(directory, name + ".tmp");
+        final File file = new File(directory, name + ".png");
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, width, height, argb, 0, width);
+
+        try {
+            if (!ImageIO.write(image, "png", temp)) {
+                //noinspection ResultOfMethodCallIgnored
+                temp.delete();
+                return null;
+            }
+
+            if (!temp.renameTo(file)) {
+                SystemTray.logger.error("Unable to rename the icon '{}' to '{}'", temp, file);
+
+                //noinspection ResultOfMethodCallIgnored
+                temp.delete();
+                return null;
+            }
+        } catch (IOException e) {
+            SystemTray.logger.error("Unable to write the icon '{}'", file, e);
+
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+            return null;
+        }
+
+        if (frame >= RING_SIZE) {
+            //noinspection ResultOfMethodCallIgnored
+            new File(directory, getName(frame - RING_SIZE) + ".png").delete();
+        }
+
+        return name;
+    }
+
+    private
+    String getName(final long frame) {
+        return directory.getName() + "_" + frame;
+    }
+
+    /**
+     * Deletes the files of the ring.
+     */
+    public synchronized
+    void delete() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+
+        //noinspection ResultOfMethodCallIgnored
+        directory.delete();
+    }
+}
@@ -23,5 +23,8 @@ import dorkbox.util.Keep;
 @Keep
 public
 interface GEventCallback extends Callback {
-    void callback(Pointer instance, GdkEventButton event);
+    /**
+     * @param event the native GdkEventButton. Use {@link GdkEventButton#type(Pointer)} and {@link GdkEventButton#time(Pointer)} to read it
+     */
+    void callback(Pointer instance, Pointer event);
 }
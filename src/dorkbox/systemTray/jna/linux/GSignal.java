@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.jna.linux;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.jna.Pointer;
+
+import dorkbox.systemTray.SystemTray;
+
+/**
+ * Connects GObject signals to java objects, via ONE long-lived native callback (trampoline) per signal kind.
+ * <p>
+ * JNA allocates a native thunk for every callback object that is handed to native code, and that object must be kept reachable for as
+ * long as it might be called. Instead of one callback object per menu entry, the trampoline is connected with a unique ID as the
+ * signal 'data' pointer, and that ID is used to look up the java target. The number of native thunks stays constant regardless of
+ * how large the menu is.
+ */
+public
+class GSignal {
+    // 0 is reserved, since that is a NULL data pointer
+    private static final AtomicLong ID_COUNTER = new AtomicLong(1);
+
+    private static final Map<Long, GCallback> signalTargets = new ConcurrentHashMap<Long, GCallback>();
+    private static final Map<Long, GEventCallback> eventTargets = new ConcurrentHashMap<Long, GEventCallback>();
+
+    // these are static, so they will never be GC'd (which would crash the JVM if GTK then calls them)
+    private static final GCallback signalTrampoline = new GCallback() {
+        @Override
+        public
+        int callback(final Pointer instance, final Pointer data) {
+            final GCallback target = signalTargets.get(Pointer.nativeValue(data));
+            if (target != null) {
+                final Boolean wasDispatch = Gtk.isDispatch.get();
+                Gtk.isDispatch.set(true);
+
+                try {
+                    return target.callback(instance, null);
+                } finally {
+                    Gtk.isDispatch.set(wasDispatch);
+                }
+            }
+
+            return Gtk.FALSE;
+        }
+    };
+
+    private static final GSignalEventCallback eventTrampoline = new GSignalEventCallback() {
+        @Override
+        public
+        int callback(final Pointer instance, final Pointer event, final Pointer data) {
+            final GEventCallback target = eventTargets.get(Pointer.nativeValue(data));
+            if (target != null) {
+                final Boolean wasDispatch = Gtk.isDispatch.get();
+                Gtk.isDispatch.set(true);
+
+                try {
+                    target.callback(instance, event);
+                } catch (Exception e) {
+                    SystemTray.logger.error("Error handling GTK event.", e);
+                } finally {
+                    Gtk.isDispatch.set(wasDispatch);
+                }
+            }
+
+            return Gtk.FALSE;
+        }
+    };
+
+    /**
+     * Connects the target to the specified signal of the GObject instance.
+     * <p>
+     * ALWAYS CALLED ON THE DISPATCH THREAD
+     *
+     * @return the ID of this connection, which must be used to disconnect it again.
+     */
+    public static
+    long connect(final Pointer instance, final String signal, final GCallback target) {
+        final long id = ID_COUNTER.getAndIncrement();
+        signalTargets.put(id, target);
+
+        Gobject.g_signal_connect_data(instance, signal, signalTrampoline, new Pointer(id), null, 0);
+        return id;
+    }
+
+    /**
+     * Connects the target to the specified event signal (ie: "button_press_event") of the GObject instance.
+     * <p>
+     * ALWAYS CALLED ON THE DISPATCH THREAD
+     *
+     * @return the ID of this connection, which must be used to disconnect it again.
+     */
+    public static
+    long connect(final Pointer instance, final String signal, final GEventCallback target) {
+        final long id = ID_COUNTER.getAndIncrement();
+        eventTargets.put(id, target);
+
+        Gobject.g_signal_connect_data(instance, signal, eventTrampoline, new Pointer(id), null, 0);
+        return id;
+    }
+
+    /**
+     * Releases the java target for the specified connection. If the signal is still emitted by GTK, it will be ignored.
+     */
+    public static
+    void disconnect(final long id) {
+        signalTargets.remove(id);
+        eventTargets.remove(id);
+    }
+}
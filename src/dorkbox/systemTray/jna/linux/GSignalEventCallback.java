@@ -0,0 +1,32 @@
+/*
+ * Copyright 2016 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.jna.linux;
+
+import com.sun.jna.Callback;
+import com.sun.jna.Pointer;
+
+import dorkbox.util.Keep;
+
+/**
+ * The native signature for event signals (ie: "button_press_event"), which also receives the user 'data' pointer.
+ */
+@Keep
+interface GSignalEventCallback extends Callback {
+    /**
+     * @return Gtk.TRUE if we handled this event (and it should not propagate further)
+     */
+    int callback(Pointer instance, Pointer event, Pointer data);
+}
@@ -23,9 +23,41 @@ import com.sun.jna.Structure;
 
 import dorkbox.util.Keep;
 
+/**
+ * The layout of a GdkEventButton. Event callbacks receive a pointer to the native event instead of this structure, because JNA would
+ * allocate a new one and read every field (via reflection) for every event. The few fields we need are read directly at their offsets,
+ * which are calculated once from this layout.
+ */
 @Keep
 public
 class GdkEventButton extends Structure {
+    public static final int BUTTON_PRESS = 4;
+
+    private static final int TYPE_OFFSET;
+    private static final int TIME_OFFSET;
+
+    static {
+        GdkEventButton layout = new GdkEventButton();
+        TYPE_OFFSET = layout.fieldOffset("type");
+        TIME_OFFSET = layout.fieldOffset("time");
+    }
+
+    /**
+     * @return the type of the native event, ie: {@link #BUTTON_PRESS}
+     */
+    public static
+    int type(final Pointer event) {
+        return event.getInt(TYPE_OFFSET);
+    }
+
+    /**
+     * @return the time of the native event
+     */
+    public static
+    int time(final Pointer event) {
+        return event.getInt(TIME_OFFSET);
+    }
+
     public int type;
     public Pointer window;
     public int send_event;
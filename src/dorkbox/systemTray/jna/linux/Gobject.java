@@ -52,4 +52,8 @@ class Gobject {
     public static native void g_object_ref_sink(Pointer object);
 
     public static native void g_signal_connect_object(Pointer instance, String detailed_signal, Callback c_handler, Pointer object, int connect_flags);
+
+    // 'data' is passed as-is to the handler (it is not a GObject), which is what we use to demultiplex in GSignal
+    public static native void g_signal_connect_data(Pointer instance, String detailed_signal, Callback c_handler, Pointer data,
+                                                    Pointer destroy_data, int connect_flags);
 }
@@ -17,21 +17,29 @@ package dorkbox.systemTray.jna.linux;
 
 import static dorkbox.systemTray.SystemTray.logger;
 
-import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.sun.jna.Function;
 import com.sun.jna.Pointer;
 
 import dorkbox.systemTray.Entry;
+import dorkbox.systemTray.MenuItem;
 import dorkbox.systemTray.SystemTray;
 import dorkbox.systemTray.jna.JnaHelper;
+import dorkbox.systemTray.util.CallbackExecutor;
+import dorkbox.systemTray.util.DispatchMetrics;
 import dorkbox.systemTray.util.JavaFX;
 import dorkbox.systemTray.util.Swt;
 import dorkbox.util.OS;
+import dorkbox.util.Property;
 
 /**
  * bindings for gtk 2 or 3
@@ -58,7 +66,8 @@ class Gtk {
     private static final boolean alreadyRunningGTK;
 
     // This is required because the EDT needs to have it's own value for this boolean, that is a different value than the main thread
-    private static ThreadLocal<Boolean> isDispatch = new ThreadLocal<Boolean>() {
+    // GSignal also sets this, because signal handlers are called on the dispatch thread
+    static ThreadLocal<Boolean> isDispatch = new ThreadLocal<Boolean>() {
         @Override
         protected
         Boolean initialValue() {
@@ -68,6 +77,19 @@ class Gtk {
 
     private static final int TIMEOUT = 2;
 
+    // GLib priorities. LOWER values are HIGHER priority. Input events are G_PRIORITY_DEFAULT, redraws are G_PRIORITY_HIGH_IDLE + 20
+    private static final int PRIORITY_INTERACTIVE = 0;    // G_PRIORITY_DEFAULT
+    private static final int PRIORITY_NORMAL = 100;       // G_PRIORITY_HIGH_IDLE
+    private static final int PRIORITY_AFTER_NORMAL = 105; // before GTK resizes (G_PRIORITY_HIGH_IDLE + 10) and redraws
+    private static final int PRIORITY_BACKGROUND = 200;   // G_PRIORITY_DEFAULT_IDLE
+
+    @Property
+    /**
+     * How long (in milliseconds) background work (ie: bulk menu image updates) may run per main-loop iteration, before yielding to input,
+     * redraws, and all other dispatched work.
+     */
+    public static volatile long BACKGROUND_MILLIS_PER_FRAME = 4L;
+
     // objdump -T /usr/lib/x86_64-linux-gnu/libgtk-x11-2.0.so.0 | grep gtk
     // objdump -T /usr/lib/x86_64-linux-gnu/libgtk-3.so.0 | grep gtk
 
@@ -199,9 +221,73 @@ class Gtk {
 
     private static volatile boolean started = false;
 
-    // have to save these in a field to prevent GC on the objects (since they go out-of-scope from java)
-    @SuppressWarnings("MismatchedQueryAndUpdateOfCollection")
-    private static final LinkedList<Object> gtkCallbacks = new LinkedList<Object>();
+    // runnables waiting to be executed on the dispatch thread, by ID. The ID is passed to GTK as the 'data' pointer for the trampoline.
+    // 0 is reserved, since that is a NULL data pointer
+    private static final AtomicLong DISPATCH_ID_COUNTER = new AtomicLong(1);
+    private static final Map<Long, Runnable> pendingDispatch = new ConcurrentHashMap<Long, Runnable>();
+
+    // ONE long-lived callback for every dispatch. It is static, so it is never GC'd (JNA only has to create the native thunk once)
+    private static final FuncCallback dispatchTrampoline = new FuncCallback() {
+        @Override
+        public
+        int callback(final Pointer data) {
+            // now that we've 'handled' it, we can remove it from our pending list
+            final Runnable runnable = pendingDispatch.remove(Pointer.nativeValue(data));
+
+            if (runnable != null) {
+                isDispatch.set(true);
+
+                try {
+                    runnable.run();
+                } finally {
+                    isDispatch.set(false);
+                }
+            }
+
+            return Gtk.FALSE; // don't want to call this again
+        }
+    };
+
+    // background work is queued here and drained by ONE idle source, a little at a time, so it never competes with interactive work
+    private static final Queue<Runnable> backgroundQueue = new ConcurrentLinkedQueue<Runnable>();
+    private static final AtomicBoolean backgroundScheduled = new AtomicBoolean(false);
+
+    private static final FuncCallback backgroundTrampoline = new FuncCallback() {
+        @Override
+        public
+        int callback(final Pointer data) {
+            final long endTime = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(BACKGROUND_MILLIS_PER_FRAME);
+
+            isDispatch.set(true);
+
+            try {
+                Runnable runnable;
+                while ((runnable = backgroundQueue.poll()) != null) {
+                    try {
+                        runnable.run();
+                    } catch (Exception e) {
+                        logger.error("Error during background dispatch.", e);
+                    }
+
+                    if (System.nanoTime() - endTime >= 0 && !backgroundQueue.isEmpty()) {
+                        // out of time for this frame. Let everything else run, then come back for more
+                        return Gtk.TRUE;
+                    }
+                }
+            } finally {
+                isDispatch.set(false);
+            }
+
+            backgroundScheduled.set(false);
+
+            // something might have been added after we saw that the queue was empty, and before we marked ourselves as done.
+            if (!backgroundQueue.isEmpty() && backgroundScheduled.compareAndSet(false, true)) {
+                return Gtk.TRUE;
+            }
+
+            return Gtk.FALSE; // don't want to call this again
+        }
+    };
 
     @SuppressWarnings("FieldCanBeLocal")
     private static Thread gtkUpdateThread = null;
@@ -286,10 +372,8 @@ class Gtk {
                     while (true) {
                         Thread.sleep(100);
 
-                        synchronized (gtkCallbacks) {
-                            if (gtkCallbacks.isEmpty()) {
-                                break;
-                            }
+                        if (isIdle()) {
+                            break;
                         }
                     }
                 } catch (InterruptedException e) {
@@ -310,10 +394,8 @@ class Gtk {
                     while (true) {
                         Thread.sleep(100);
 
-                        synchronized (gtkCallbacks) {
-                            if (gtkCallbacks.isEmpty()) {
-                                break;
-                            }
+                        if (isIdle()) {
+                            break;
                         }
                     }
                 } catch (InterruptedException e) {
@@ -333,10 +415,8 @@ class Gtk {
                 while (true) {
                     Thread.sleep(100);
 
-                    synchronized (gtkCallbacks) {
-                        if (gtkCallbacks.isEmpty()) {
-                            break;
-                        }
+                    if (isIdle()) {
+                        break;
                     }
                 }
             } catch (InterruptedException e) {
@@ -345,11 +425,92 @@ class Gtk {
         }
     }
 
+    /**
+     * @return true if nothing is waiting to run on the dispatch thread (in any of the lanes)
+     */
+    private static
+    boolean isIdle() {
+        return pendingDispatch.isEmpty() && backgroundQueue.isEmpty();
+    }
+
+    /**
+     * Runs all of the background work that is still queued. ONLY CALLED ON THE DISPATCH THREAD
+     */
+    private static
+    void drainBackground() {
+        Runnable runnable;
+        while ((runnable = backgroundQueue.poll()) != null) {
+            try {
+                runnable.run();
+            } catch (Exception e) {
+                logger.error("Error during background dispatch.", e);
+            }
+        }
+    }
+
     /**
      * Best practices for GTK, is to call EVERYTHING for it on the GTK THREAD. This accomplishes that.
      */
     public static
     void dispatch(final Runnable runnable) {
+        dispatch(runnable, PRIORITY_NORMAL);
+    }
+
+    /**
+     * Dispatches work that a user is actively waiting on (ie: showing a menu after a click). This runs before all other queued work, so
+     * it must not be used for tray state changes (ie: enabled, image) that have to stay in order with the rest of the queue.
+     */
+    public static
+    void dispatchInteractive(final Runnable runnable) {
+        dispatch(runnable, PRIORITY_INTERACTIVE);
+    }
+
+    /**
+     * Dispatches work that must run after all of the normal work that is already queued, but before GTK resizes or redraws (ie: showing
+     * the menus that were changed by that work, only once).
+     * <p>
+     * This is ALWAYS queued (even when called from the dispatch thread).
+     */
+    public static
+    void dispatchAfterPending(final Runnable runnable) {
+        if (alreadyRunningGTK && SystemTray.isJavaFxLoaded) {
+            // JavaFX always queues, so this still runs after everything that is already queued
+            JavaFX.dispatch(DispatchMetrics.GTK.wrap(runnable));
+            return;
+        }
+
+        final long id = DISPATCH_ID_COUNTER.getAndIncrement();
+        pendingDispatch.put(id, DispatchMetrics.GTK.wrap(runnable));
+
+        gdk_threads_add_idle_full(PRIORITY_AFTER_NORMAL, dispatchTrampoline, new Pointer(id), null);
+    }
+
+    /**
+     * Dispatches bulk work that nobody is waiting on (ie: refreshing menu entry images). This runs after all other queued work AND
+     * redraws, and only for {@link #BACKGROUND_MILLIS_PER_FRAME} per main-loop iteration.
+     * <p>
+     * Background work is ALWAYS queued (even when called from the dispatch thread), and it runs in order with other background work, but
+     * NOT in order with the other lanes. It can run after normal work that was dispatched after it (ie: setting the text, or removing the
+     * entry), so it must read the current values when it runs (not when it is queued), and do nothing if the entry it is for has been
+     * removed. The GTK menu entries only use it for their images, which do both.
+     */
+    public static
+    void dispatchBackground(final Runnable runnable) {
+        if (alreadyRunningGTK && SystemTray.isJavaFxLoaded) {
+            // JavaFX does not use the raw GTK event loop for dispatch, so there is nothing to prioritize against
+            dispatch(runnable, PRIORITY_NORMAL);
+            return;
+        }
+
+        backgroundQueue.offer(DispatchMetrics.GTK.wrap(runnable));
+
+        if (backgroundScheduled.compareAndSet(false, true)) {
+            gdk_threads_add_idle_full(PRIORITY_BACKGROUND, backgroundTrampoline, null, null);
+        }
+    }
+
+    private static
+    void dispatch(final Runnable runnable, final int priority) {
         if (alreadyRunningGTK) {
             if (SystemTray.isJavaFxLoaded) {
                 // JavaFX only
@@ -358,7 +519,7 @@ class Gtk {
                     runnable.run();
                 }
                 else {
-                    JavaFX.dispatch(runnable);
+                    JavaFX.dispatch(DispatchMetrics.GTK.wrap(runnable));
                 }
 
                 return;
@@ -380,37 +541,39 @@ class Gtk {
             // Run directly on the dispatch thread
             runnable.run();
         } else {
-            final FuncCallback callback = new FuncCallback() {
-                @Override
-                public
-                int callback(final Pointer data) {
-                    synchronized (gtkCallbacks) {
-                        gtkCallbacks.removeFirst(); // now that we've 'handled' it, we can remove it from our callback list
-                    }
-
-                    isDispatch.set(true);
-
-                    try {
-                        runnable.run();
-                    } finally {
-                        isDispatch.set(false);
-                    }
-
-                    return Gtk.FALSE; // don't want to call this again
-                }
-            };
-
-            synchronized (gtkCallbacks) {
-                gtkCallbacks.offer(callback); // prevent GC from collecting this object before it can be called
-            }
+            final long id = DISPATCH_ID_COUNTER.getAndIncrement();
+            pendingDispatch.put(id, DispatchMetrics.GTK.wrap(runnable));
 
             // the correct way to do it. Add with a slightly higher value
-            gdk_threads_add_idle_full(100, callback, null, null);
+            gdk_threads_add_idle_full(priority, dispatchTrampoline, new Pointer(id), null);
         }
     }
 
     public static
     void dispatchAndWait(final Runnable runnable) {
+        dispatchAndWait(runnable, PRIORITY_NORMAL, true);
+    }
+
+    /**
+     * Same as {@link #dispatchInteractive(Runnable)}, but waits for it to finish.
+     */
+    public static
+    void dispatchInteractiveAndWait(final Runnable runnable) {
+        dispatchAndWait(runnable, PRIORITY_INTERACTIVE, true);
+    }
+
+    /**
+     * Same as {@link #dispatchAndWait(Runnable)}, but without the timeout. Only for work that can legitimately take longer than that,
+     * because it runs the caller's code on the dispatch thread (ie: a large Menu.edit()). Failing it half-way would leave the menu
+     * half-changed, while the dispatch thread is still running the rest of it.
+     */
+    public static
+    void dispatchAndWaitUntilDone(final Runnable runnable) {
+        dispatchAndWait(runnable, PRIORITY_NORMAL, false);
+    }
+
+    private static
+    void dispatchAndWait(final Runnable runnable, final int priority, final boolean timeout) {
         if (isDispatch.get()) {
             // Run directly on the dispatch thread (should not "redispatch" this again)
             runnable.run();
@@ -427,12 +590,15 @@ class Gtk {
                         countDownLatch.countDown();
                     }
                 }
-            });
+            }, priority);
 
             // this is slightly different than how swing does it. We have a timeout here so that we can make sure that updates on the GUI
             // thread occur in REASONABLE time-frames, and alert the user if not.
             try {
-                if (!countDownLatch.await(TIMEOUT, TimeUnit.SECONDS)) {
+                if (!timeout) {
+                    countDownLatch.await();
+                }
+                else if (!countDownLatch.await(TIMEOUT, TimeUnit.SECONDS)) {
                     if (SystemTray.DEBUG) {
                         SystemTray.logger.error("Something is very wrong. The Event Dispatch Queue took longer than " + TIMEOUT + " seconds " +
                                                 "to complete.",
@@ -454,6 +620,11 @@ class Gtk {
             @Override
             public
             void run() {
+                // background work that is still queued would otherwise run against a menu (and a main loop) that no longer exists
+                drainBackground();
+                backgroundScheduled.set(false);
+                PixbufCache.clear();
+
                 // If JavaFX/SWT is used, this is UNNECESSARY (and will break SWT/JavaFX shutdown)
                 if (!alreadyRunningGTK) {
                     gtk_main_quit();
@@ -465,7 +636,8 @@ class Gtk {
     }
 
     /**
-     * required to properly setup the dispatch flag when using native menus
+     * required to properly setup the dispatch flag when using native menus. When {@link CallbackExecutor#ENABLE} is true, the user's
+     * callback runs on the callback executor instead (where the dispatch flag is not set).
      *
      * @param callback will never be null.
      */
@@ -475,10 +647,11 @@ class Gtk {
 
         try {
             if (menuEntry != null) {
-                callback.actionPerformed(new ActionEvent(menuEntry, ActionEvent.ACTION_PERFORMED, ""));
+                String text = menuEntry instanceof MenuItem ? ((MenuItem) menuEntry).getText() : null;
+                CallbackExecutor.click(menuEntry, text, callback);
             } else {
                 // checkbox entries will not pass the menuEntry in, because they redispatch the click event so that the checkbox state is
-                // toggled
+                // toggled. They call the CallbackExecutor themselves.
                 callback.actionPerformed(null);
             }
         } finally {
@@ -520,6 +693,18 @@ class Gtk {
     // to create a menu entry WITH an icon.
     public static native Pointer gtk_image_new_from_file(String iconPath);
 
+    // to create/update a menu entry icon from an already decoded image (see PixbufCache)
+    public static native Pointer gtk_image_new_from_pixbuf(Pointer pixbuf);
+    public static native void gtk_image_set_from_pixbuf(Pointer image, Pointer pixbuf);
+
+    // GdkPixbuf is part of gdk-pixbuf, which GTK always links against. 'error' can be null
+    public static native Pointer gdk_pixbuf_new_from_file(String filename, Pointer error);
+
+    // colorspace 0 is GDK_COLORSPACE_RGB, the only one there is
+    public static native Pointer gdk_pixbuf_new(int colorspace, boolean has_alpha, int bits_per_sample, int width, int height);
+    public static native Pointer gdk_pixbuf_get_pixels(Pointer pixbuf);
+    public static native int gdk_pixbuf_get_rowstride(Pointer pixbuf);
+
     // uses '_' to define which key is the mnemonic
     public static native Pointer gtk_image_menu_item_new_with_mnemonic(String label);
     public static native Pointer gtk_check_menu_item_new_with_mnemonic (String label);
@@ -534,6 +719,8 @@ class Gtk {
 
     public static native void gtk_status_icon_set_from_file(Pointer widget, String label);
 
+    public static native void gtk_status_icon_set_from_pixbuf(Pointer widget, Pointer pixbuf);
+
     public static native void gtk_status_icon_set_visible(Pointer widget, boolean visible);
 
     // app indicators don't support this, and we cater to the lowest common denominator
@@ -549,6 +736,10 @@ class Gtk {
 
     public static native void gtk_menu_shell_append(Pointer menu_shell, Pointer child);
 
+    public static native void gtk_menu_shell_insert(Pointer menu_shell, Pointer child, int position);
+
+    public static native void gtk_menu_reorder_child(Pointer menu, Pointer child, int position);
+
     // Typically this results in the menu shell being erased from the screen
     public static native void gtk_menu_shell_deactivate(Pointer menuShell);
 
@@ -556,6 +747,9 @@ class Gtk {
 
     public static native void gtk_widget_show_all(Pointer widget);
 
+    // gtk_widget_show_all() skips a widget that has this set
+    public static native void gtk_widget_set_no_show_all(Pointer widget, boolean no_show_all);
+
     // will automatically get destroyed if no other references to it
     public static native void gtk_container_remove(Pointer parentWidget, Pointer widget);
 
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.jna.linux;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.sun.jna.Pointer;
+
+import dorkbox.systemTray.SystemTray;
+
+/**
+ * Decoded images (GdkPixbuf), keyed by the (cache) file they were loaded from. Every image file is only read and decoded ONCE, and the
+ * same pixbuf is shared by every GtkImage that shows it.
+ * <p>
+ * Our image cache files are named after their content, so a file never changes once it is cached here.
+ * <p>
+ * ALWAYS CALLED ON THE EDT
+ */
+public final
+class PixbufCache {
+    // the least recently used pixbufs are released when there are more than this. GtkImages that use them keep their own reference
+    private static final int MAX_SIZE = 128;
+
+    private static final Map<String, Pointer> cache = new LinkedHashMap<String, Pointer>(16, 0.75F, true);
+
+    private
+    PixbufCache() {
+    }
+
+    /**
+     * @return the (shared) pixbuf for the specified image file, or null if it could not be loaded. DO NOT unref it.
+     */
+    public static
+    Pointer get(final File imageFile) {
+        final String path = imageFile.getAbsolutePath();
+
+        Pointer pixbuf = cache.get(path);
+        if (pixbuf != null) {
+            return pixbuf;
+        }
+
+        pixbuf = Gtk.gdk_pixbuf_new_from_file(path, null);
+        if (pixbuf == null) {
+            SystemTray.logger.error("Unable to load image '{}'", path);
+            return null;
+        }
+
+        cache.put(path, pixbuf);
+
+        if (cache.size() > MAX_SIZE) {
+            Iterator<Pointer> iterator = cache.values().iterator();
+            Gobject.g_object_unref(iterator.next());
+            iterator.remove();
+        }
+
+        return pixbuf;
+    }
+
+    /**
+     * Creates a NEW pixbuf (that is not cached) from pixels, without any file I/O.
+     *
+     * @param argb width * height pixels, in the same format as BufferedImage.TYPE_INT_ARGB
+     *
+     * @return the pixbuf, which must be unref'd when it is no longer needed
+     */
+    public static
+    Pointer fromPixels(final int width, final int height, final int[] argb) {
+        final Pointer pixbuf = Gtk.gdk_pixbuf_new(0, true, 8, width, height);
+        final Pointer pixels = Gtk.gdk_pixbuf_get_pixels(pixbuf);
+        final int rowstride = Gtk.gdk_pixbuf_get_rowstride(pixbuf);
+
+        // GdkPixbuf is RGBA, one byte per sample (and NOT pre-multiplied, just like TYPE_INT_ARGB)
+        final byte[] row = new byte[width * 4];
+
+        for (int y = 0; y < height; y++) {
+            int offset = y * width;
+
+            for (int x = 0, i = 0; x < width; x++) {
+                final int pixel = argb[offset + x];
+
+                row[i++] = (byte) (pixel >> 16);
+                row[i++] = (byte) (pixel >> 8);
+                row[i++] = (byte) pixel;
+                row[i++] = (byte) (pixel >>> 24);
+            }
+
+            pixels.write((long) y * rowstride, row, 0, row.length);
+        }
+
+        return pixbuf;
+    }
+
+    /**
+     * Releases all of the cached pixbufs
+     */
+    public static
+    void clear() {
+        for (Pointer pixbuf : cache.values()) {
+            Gobject.g_object_unref(pixbuf);
+        }
+        cache.clear();
+    }
+}
@@ -18,6 +18,8 @@ package dorkbox.systemTray.nativeUI;
 
 import java.awt.MenuShortcut;
 import java.awt.PopupMenu;
+import java.util.ArrayList;
+import java.util.List;
 
 import dorkbox.systemTray.Checkbox;
 import dorkbox.systemTray.Entry;
@@ -25,62 +27,202 @@ import dorkbox.systemTray.Menu;
 import dorkbox.systemTray.MenuItem;
 import dorkbox.systemTray.Separator;
 import dorkbox.systemTray.Status;
+import dorkbox.systemTray.SystemTray;
+import dorkbox.systemTray.VirtualList;
 import dorkbox.systemTray.peer.MenuPeer;
+import dorkbox.systemTray.util.PeerUpdates;
+import dorkbox.systemTray.util.SwingDispatch;
 import dorkbox.util.SwingUtil;
 
 // this is a weird composite class, because it must be a Menu, but ALSO a Entry -- so it has both
 @SuppressWarnings("ForLoopReplaceableByForEach")
 class AwtMenu implements MenuPeer {
+    // property updates are coalesced, so that each changed property is only updated once per dispatch
+    private final PeerUpdates updates;
+
+    // shared by every entry in the menu of the tray. AWT menus are never known to be hidden (see notifiesShowing)
+    final PeerUpdates.MenuVisibility visibility;
 
     volatile java.awt.Menu _native;
     private final AwtMenu parent;
 
+    // one slot for every entry of the menu, in the same order (including the status). A slot is the native item, or the peer of an entry
+    // that has no native item (a virtual list), so that the indices of the menu can be turned into native indices. ONLY used on the EDT
+    private final List<Object> slots = new ArrayList<Object>();
+
     // This is NOT a copy constructor!
     @SuppressWarnings("IncompleteCopyConstructor")
     AwtMenu(final AwtMenu parent) {
+        this(parent, -1);
+    }
+
+    // This is NOT a copy constructor!
+    @SuppressWarnings("IncompleteCopyConstructor")
+    AwtMenu(final AwtMenu parent, final int index) {
         this.parent = parent;
 
         if (parent == null) {
+            this.visibility = new PeerUpdates.MenuVisibility();
             this._native = new PopupMenu();
         }
         else {
+            this.visibility = parent.visibility;
             this._native = new java.awt.Menu();
-            parent._native.add(this._native);
+            parent.addNative(this._native, index);
+        }
+
+        this.updates = PeerUpdates.forSwing(visibility);
+    }
+
+    /**
+     * Adds the native entry at the index (which includes the status, the same as the entries of the menu), or at the end if the index is
+     * -1. The index is only correct because every change to the entries of the menu is applied here in the same order.
+     *
+     * ALWAYS CALLED ON THE EDT
+     */
+    void addNative(final java.awt.MenuItem item, final int index) {
+        final int nativeIndex = addSlot(item, index);
+
+        if (nativeIndex >= _native.getItemCount()) {
+            _native.add(item);
+        }
+        else {
+            _native.insert(item, nativeIndex);
+        }
+    }
+
+    /**
+     * Removes the native entry (and its slot)
+     *
+     * ALWAYS CALLED ON THE EDT
+     */
+    void removeNative(final java.awt.MenuItem item) {
+        slots.remove(item);
+        _native.remove(item);
+    }
+
+    /**
+     * Adds the slot at the index (the same as {@link #addNative(java.awt.MenuItem, int)}). An entry without a native item only adds its
+     * slot, and removes it again with {@link #removeSlot(Object)}.
+     *
+     * ALWAYS CALLED ON THE EDT
+     *
+     * @return the native index of the slot
+     */
+    int addSlot(final Object slot, int index) {
+        if (index < 0 || index >= slots.size()) {
+            index = slots.size();
         }
+
+        slots.add(index, slot);
+        return getNativeIndex(index);
+    }
+
+    /**
+     * ALWAYS CALLED ON THE EDT
+     */
+    void removeSlot(final Object slot) {
+        slots.remove(slot);
+    }
+
+    /**
+     * @return how many native items are before the slot at the index
+     */
+    private
+    int getNativeIndex(final int index) {
+        int nativeIndex = 0;
+        for (int i = 0; i < index; i++) {
+            if (slots.get(i) instanceof java.awt.MenuItem) {
+                nativeIndex++;
+            }
+        }
+
+        return nativeIndex;
+    }
+
+    @Override
+    public
+    boolean notifiesShowing() {
+        // AWT menus do not tell us when they are about to show
+        return false;
     }
 
     @Override
     public
     void add(final Menu parentMenu, final Entry entry, final int index) {
         // must always be called on the EDT
-        SwingUtil.invokeLater(new Runnable() {
+        SwingDispatch.invokeLater(new Runnable() {
             @Override
             public
             void run() {
                 if (entry instanceof Menu) {
-                    AwtMenu swingMenu = new AwtMenu(AwtMenu.this);
+                    AwtMenu swingMenu = new AwtMenu(AwtMenu.this, index);
                     ((Menu) entry).bind(swingMenu, parentMenu, parentMenu.getSystemTray());
                 }
                 else if (entry instanceof Separator) {
-                    AwtMenuItemSeparator item = new AwtMenuItemSeparator(AwtMenu.this);
+                    AwtMenuItemSeparator item = new AwtMenuItemSeparator(AwtMenu.this, index);
                     entry.bind(item, parentMenu, parentMenu.getSystemTray());
                 }
                 else if (entry instanceof Checkbox) {
-                    AwtMenuItemCheckbox item = new AwtMenuItemCheckbox(AwtMenu.this);
+                    AwtMenuItemCheckbox item = new AwtMenuItemCheckbox(AwtMenu.this, index);
                     ((Checkbox) entry).bind(item, parentMenu, parentMenu.getSystemTray());
                 }
                 else if (entry instanceof Status) {
                     AwtMenuItemStatus item = new AwtMenuItemStatus(AwtMenu.this);
                     ((Status) entry).bind(item, parentMenu, parentMenu.getSystemTray());
                 }
+                else if (entry instanceof VirtualList) {
+                    SystemTray.logger.warn("Virtual lists are not supported by AWT menus, and will not be shown.");
+
+                    AwtVirtualList item = new AwtVirtualList(AwtMenu.this, index);
+                    ((VirtualList) entry).bind(item, parentMenu, parentMenu.getSystemTray());
+                }
                 else if (entry instanceof MenuItem) {
-                    AwtMenuItem item = new AwtMenuItem(AwtMenu.this);
+                    AwtMenuItem item = new AwtMenuItem(AwtMenu.this, index);
                     ((MenuItem) entry).bind(item, parentMenu, parentMenu.getSystemTray());
                 }
             }
         });
     }
 
+    @Override
+    public
+    void move(final int index, final int newIndex) {
+        SwingDispatch.invokeLater(new Runnable() {
+            @Override
+            public
+            void run() {
+                if (index >= slots.size()) {
+                    return;
+                }
+
+                final Object slot = slots.remove(index);
+                final int slotIndex = Math.min(newIndex, slots.size());
+                slots.add(slotIndex, slot);
+
+                if (slot instanceof java.awt.MenuItem) {
+                    // the same item, so nothing about it has to be created again
+                    final java.awt.MenuItem item = (java.awt.MenuItem) slot;
+                    _native.remove(item);
+                    _native.insert(item, getNativeIndex(slotIndex));
+                }
+            }
+        });
+    }
+
+    @Override
+    public
+    void edit(final Menu menu, final Runnable changes) {
+        SwingDispatch.invokeAndWait(new Runnable() {
+            @Override
+            public
+            void run() {
+                // everything that the changes do to the peers runs directly, since we are already on the EDT
+                changes.run();
+            }
+        });
+    }
+
     // is overridden in tray impl
     @Override
     public
@@ -92,7 +234,7 @@ class AwtMenu implements MenuPeer {
     @Override
     public
     void setEnabled(final MenuItem menuItem) {
-        SwingUtil.invokeLater(new Runnable() {
+        updates.update(PeerUpdates.ENABLED, new Runnable() {
             @Override
             public
             void run() {
@@ -105,7 +247,7 @@ class AwtMenu implements MenuPeer {
     @Override
     public
     void setText(final MenuItem menuItem) {
-        SwingUtil.invokeLater(new Runnable() {
+        updates.update(PeerUpdates.TEXT, new Runnable() {
             @Override
             public
             void run() {
@@ -127,7 +269,7 @@ class AwtMenu implements MenuPeer {
         // yikes...
         final int vKey = SwingUtil.getVirtualKey(menuItem.getShortcut());
 
-        SwingUtil.invokeLater(new Runnable() {
+        updates.update(PeerUpdates.SHORTCUT, new Runnable() {
             @Override
             public
             void run() {
@@ -136,20 +278,30 @@ class AwtMenu implements MenuPeer {
         });
     }
 
+    @Override
+    public
+    void release() {
+        updates.cancel();
+    }
+
     @Override
     public
     void remove() {
-        SwingUtil.invokeLater(new Runnable() {
+        // deferred updates must not run after the entry is gone
+        updates.cancel();
+
+        SwingDispatch.invokeLater(new Runnable() {
             @Override
             public
             void run() {
                 _native.removeAll();
+                slots.clear();
                 _native.deleteShortcut();
                 _native.setEnabled(false);
                 _native.removeNotify();
 
                 if (parent != null) {
-                    parent._native.remove(_native);
+                    parent.removeNative(_native);
                 }
             }
         });
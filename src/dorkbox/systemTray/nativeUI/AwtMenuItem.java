@@ -20,11 +20,15 @@ import java.awt.MenuShortcut;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 
-import dorkbox.systemTray.SystemTray;
 import dorkbox.systemTray.peer.MenuItemPeer;
+import dorkbox.systemTray.util.CallbackExecutor;
+import dorkbox.systemTray.util.PeerUpdates;
+import dorkbox.systemTray.util.SwingDispatch;
 import dorkbox.util.SwingUtil;
 
 class AwtMenuItem implements MenuItemPeer {
+    // property updates are coalesced, so that each changed property is only updated once per dispatch
+    private final PeerUpdates updates;
 
     private final AwtMenu parent;
     private final MenuItem _native = new java.awt.MenuItem();
@@ -32,9 +36,10 @@ class AwtMenuItem implements MenuItemPeer {
     private volatile ActionListener swingCallback;
 
     // this is ALWAYS called on the EDT.
-    AwtMenuItem(final AwtMenu parent) {
+    AwtMenuItem(final AwtMenu parent, final int index) {
         this.parent = parent;
-        parent._native.add(_native);
+        this.updates = PeerUpdates.forSwing(parent.visibility);
+        parent.addNative(_native, index);
     }
 
     @Override
@@ -46,7 +51,7 @@ class AwtMenuItem implements MenuItemPeer {
     @Override
     public
     void setEnabled(final dorkbox.systemTray.MenuItem menuItem) {
-        SwingUtil.invokeLater(new Runnable() {
+        updates.update(PeerUpdates.ENABLED, new Runnable() {
             @Override
             public
             void run() {
@@ -58,7 +63,7 @@ class AwtMenuItem implements MenuItemPeer {
     @Override
     public
     void setText(final dorkbox.systemTray.MenuItem menuItem) {
-        SwingUtil.invokeLater(new Runnable() {
+        updates.update(PeerUpdates.TEXT, new Runnable() {
             @Override
             public
             void run() {
@@ -80,14 +85,10 @@ class AwtMenuItem implements MenuItemPeer {
                 @Override
                 public
                 void actionPerformed(ActionEvent e) {
-                // we want it to run on the EDT, but with our own action event info (so it is consistent across all platforms)
+                // we want it to run with our own action event info (so it is consistent across all platforms)
                 ActionListener cb = menuItem.getCallback();
                 if (cb != null) {
-                    try {
-                        cb.actionPerformed(new ActionEvent(menuItem, ActionEvent.ACTION_PERFORMED, ""));
-                    } catch (Throwable throwable) {
-                        SystemTray.logger.error("Error calling menu entry {} click event.", menuItem.getText(), throwable);
-                    }
+                    CallbackExecutor.click(menuItem, menuItem.getText(), cb);
                 }
                 }
             };
@@ -106,7 +107,7 @@ class AwtMenuItem implements MenuItemPeer {
         // yikes...
         final int vKey = SwingUtil.getVirtualKey(shortcut);
 
-        SwingUtil.invokeLater(new Runnable() {
+        updates.update(PeerUpdates.SHORTCUT, new Runnable() {
             @Override
             public
             void run() {
@@ -115,11 +116,20 @@ class AwtMenuItem implements MenuItemPeer {
         });
     }
 
+    @Override
+    public
+    void release() {
+        updates.cancel();
+    }
+
     @SuppressWarnings("Duplicates")
     @Override
     public
     void remove() {
-        SwingUtil.invokeLater(new Runnable() {
+        // deferred updates must not run after the entry is gone
+        updates.cancel();
+
+        SwingDispatch.invokeLater(new Runnable() {
             @Override
             public
             void run() {
@@ -130,7 +140,7 @@ class AwtMenuItem implements MenuItemPeer {
                     _native.removeActionListener(swingCallback);
                     swingCallback = null;
                 }
-                parent._native.remove(_native);
+                parent.removeNative(_native);
 
                 _native.removeNotify();
             }
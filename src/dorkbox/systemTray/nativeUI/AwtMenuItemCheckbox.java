@@ -20,11 +20,15 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 
 import dorkbox.systemTray.Checkbox;
-import dorkbox.systemTray.SystemTray;
 import dorkbox.systemTray.peer.CheckboxPeer;
+import dorkbox.systemTray.util.CallbackExecutor;
+import dorkbox.systemTray.util.PeerUpdates;
+import dorkbox.systemTray.util.SwingDispatch;
 import dorkbox.util.SwingUtil;
 
 class AwtMenuItemCheckbox implements CheckboxPeer {
+    // property updates are coalesced, so that each changed property is only updated once per dispatch
+    private final PeerUpdates updates;
 
     private final AwtMenu parent;
     private final java.awt.CheckboxMenuItem _native = new java.awt.CheckboxMenuItem();
@@ -34,14 +38,16 @@ class AwtMenuItemCheckbox implements CheckboxPeer {
     private volatile boolean isChecked = false;
 
     // this is ALWAYS called on the EDT.
-    AwtMenuItemCheckbox(final AwtMenu parent) {
+    AwtMenuItemCheckbox(final AwtMenu parent, final int index) {
         this.parent = parent;
+        this.updates = PeerUpdates.forSwing(parent.visibility);
+        parent.addNative(_native, index);
     }
 
     @Override
     public
     void setEnabled(final Checkbox menuItem) {
-        SwingUtil.invokeLater(new Runnable() {
+        updates.update(PeerUpdates.ENABLED, new Runnable() {
             @Override
             public
             void run() {
@@ -53,7 +59,7 @@ class AwtMenuItemCheckbox implements CheckboxPeer {
     @Override
     public
     void setText(final Checkbox menuItem) {
-        SwingUtil.invokeLater(new Runnable() {
+        updates.update(PeerUpdates.TEXT, new Runnable() {
             @Override
             public
             void run() {
@@ -80,14 +86,10 @@ class AwtMenuItemCheckbox implements CheckboxPeer {
                     // this will run on the EDT, since we are calling it from the EDT
                     menuItem.setChecked(!isChecked);
 
-                    // we want it to run on the EDT, but with our own action event info (so it is consistent across all platforms)
+                    // we want it to run with our own action event info (so it is consistent across all platforms)
                     ActionListener cb = menuItem.getCallback();
                     if (cb != null) {
-                        try {
-                            cb.actionPerformed(new ActionEvent(menuItem, ActionEvent.ACTION_PERFORMED, ""));
-                        } catch (Throwable throwable) {
-                            SystemTray.logger.error("Error calling menu entry {} click event.", menuItem.getText(), throwable);
-                        }
+                        CallbackExecutor.click(menuItem, menuItem.getText(), cb);
                     }
                 }
             };
@@ -103,7 +105,7 @@ class AwtMenuItemCheckbox implements CheckboxPeer {
         // yikes...
         final int vKey = SwingUtil.getVirtualKey(shortcut);
 
-        SwingUtil.invokeLater(new Runnable() {
+        updates.update(PeerUpdates.SHORTCUT, new Runnable() {
             @Override
             public
             void run() {
@@ -117,7 +119,7 @@ class AwtMenuItemCheckbox implements CheckboxPeer {
     void setChecked(final Checkbox menuItem) {
         this.isChecked = menuItem.getChecked();
 
-        SwingUtil.invokeLater(new Runnable() {
+        updates.update(PeerUpdates.CHECKED, new Runnable() {
             @Override
             public
             void run() {
@@ -126,11 +128,20 @@ class AwtMenuItemCheckbox implements CheckboxPeer {
         });
     }
 
+    @Override
+    public
+    void release() {
+        updates.cancel();
+    }
+
     @SuppressWarnings("Duplicates")
     @Override
     public
     void remove() {
-        SwingUtil.invokeLater(new Runnable() {
+        // deferred updates must not run after the entry is gone
+        updates.cancel();
+
+        SwingDispatch.invokeLater(new Runnable() {
             @Override
             public
             void run() {
@@ -141,7 +152,7 @@ class AwtMenuItemCheckbox implements CheckboxPeer {
                     _native.removeActionListener(callback);
                     callback = null;
                 }
-                parent._native.remove(_native);
+                parent.removeNative(_native);
 
                 _native.removeNotify();
             }
@@ -18,7 +18,7 @@ package dorkbox.systemTray.nativeUI;
 import java.awt.MenuItem;
 
 import dorkbox.systemTray.peer.EntryPeer;
-import dorkbox.util.SwingUtil;
+import dorkbox.systemTray.util.SwingDispatch;
 
 class AwtMenuItemSeparator implements EntryPeer {
 
@@ -27,18 +27,25 @@ class AwtMenuItemSeparator implements EntryPeer {
 
 
     // this is ALWAYS called on the EDT.
-    AwtMenuItemSeparator(final AwtMenu parent) {
+    AwtMenuItemSeparator(final AwtMenu parent, final int index) {
         this.parent = parent;
+        parent.addNative(_native, index);
+    }
+
+    @Override
+    public
+    void release() {
+        // a separator has nothing that is pending
     }
 
     @Override
     public
     void remove() {
-        SwingUtil.invokeLater(new Runnable() {
+        SwingDispatch.invokeLater(new Runnable() {
             @Override
             public
             void run() {
-                parent._native.remove(_native);
+                parent.removeNative(_native);
             }
         });
     }
@@ -22,24 +22,28 @@ import java.awt.MenuItem;
 
 import dorkbox.systemTray.Status;
 import dorkbox.systemTray.peer.StatusPeer;
-import dorkbox.util.SwingUtil;
+import dorkbox.systemTray.util.PeerUpdates;
+import dorkbox.systemTray.util.SwingDispatch;
 
 class AwtMenuItemStatus implements StatusPeer {
+    // property updates are coalesced, so that each changed property is only updated once per dispatch
+    private final PeerUpdates updates;
 
     private final AwtMenu parent;
     private final MenuItem _native = new MenuItem();
 
     AwtMenuItemStatus(final AwtMenu parent) {
         this.parent = parent;
+        this.updates = PeerUpdates.forSwing(parent.visibility);
 
         // status is ALWAYS at 0 index...
-        parent._native.insert(_native, 0);
+        parent.addNative(_native, 0);
     }
 
     @Override
     public
     void setText(final Status menuItem) {
-        SwingUtil.invokeLater(new Runnable() {
+        updates.update(PeerUpdates.TEXT, new Runnable() {
             @Override
             public
             void run() {
@@ -60,14 +64,23 @@ class AwtMenuItemStatus implements StatusPeer {
         });
     }
 
+    @Override
+    public
+    void release() {
+        updates.cancel();
+    }
+
     @Override
     public
     void remove() {
-        SwingUtil.invokeLater(new Runnable() {
+        // deferred updates must not run after the entry is gone
+        updates.cancel();
+
+        SwingDispatch.invokeLater(new Runnable() {
             @Override
             public
             void run() {
-                parent._native.remove(_native);
+                parent.removeNative(_native);
             }
         });
     }
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.nativeUI;
+
+import dorkbox.systemTray.VirtualList;
+import dorkbox.systemTray.peer.ListPeer;
+import dorkbox.systemTray.util.SwingDispatch;
+
+/**
+ * AWT menus cannot show a virtual list. This only holds its place in the menu, so the native items after it are still added (and moved)
+ * to the correct positions.
+ */
+class AwtVirtualList implements ListPeer {
+
+    private final AwtMenu parent;
+
+    // this is ALWAYS called on the EDT.
+    AwtVirtualList(final AwtMenu parent, final int index) {
+        this.parent = parent;
+        parent.addSlot(this, index);
+    }
+
+    @Override
+    public
+    void setRows(final VirtualList list) {
+        // nothing is shown
+    }
+
+    @Override
+    public
+    void release() {
+        // nothing is pending
+    }
+
+    @Override
+    public
+    void remove() {
+        SwingDispatch.invokeLater(new Runnable() {
+            @Override
+            public
+            void run() {
+                parent.removeSlot(AwtVirtualList.this);
+            }
+        });
+    }
+}
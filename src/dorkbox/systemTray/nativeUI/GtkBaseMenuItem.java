@@ -21,6 +21,7 @@ import com.sun.jna.Pointer;
 
 import dorkbox.systemTray.jna.linux.Gobject;
 import dorkbox.systemTray.jna.linux.Gtk;
+import dorkbox.systemTray.jna.linux.PixbufCache;
 import dorkbox.systemTray.peer.EntryPeer;
 import dorkbox.systemTray.util.ImageUtils;
 
@@ -32,6 +33,10 @@ class GtkBaseMenuItem implements EntryPeer {
 
     // these have to be volatile, because they can be changed from any thread
     private volatile Pointer spacerImage;
+    private volatile boolean removed = false;
+
+    // true when we are attached to our parent's native menu. When menu changes are deferred, an entry can exist before it is attached
+    private boolean inMenu = false;
 
     // the native GTK component
     protected final Pointer _native;
@@ -54,10 +59,23 @@ class GtkBaseMenuItem implements EntryPeer {
         hasLegitImage = isLegit;
     }
 
+    /**
+     * Background work can run AFTER this entry has been removed, so it must check this first.
+     */
+    boolean isRemoved() {
+        return removed;
+    }
+
+    void markRemoved() {
+        removed = true;
+    }
+
     /**
      * the menu entry looks FUNKY when there are a mis-match of entries WITH and WITHOUT images.
      * This is primarily only with AppIndicators, although not always.
      * <p>
+     * The caller has to show the menu afterwards (which shows the spacer image).
+     * <p>
      * called on the DISPATCH thread
      */
     public
@@ -70,24 +88,27 @@ class GtkBaseMenuItem implements EntryPeer {
         if (spacerImage != null) {
             Gtk.gtk_container_remove(_native, spacerImage); // will automatically get destroyed if no other references to it
             spacerImage = null;
-            Gtk.gtk_widget_show_all(_native);
         }
 
         if (everyoneElseHasImages) {
-            spacerImage = Gtk.gtk_image_new_from_file(transparentIcon.getAbsolutePath());
+            // every entry shares the same (decoded) spacer
+            spacerImage = Gtk.gtk_image_new_from_pixbuf(PixbufCache.get(transparentIcon));
             Gtk.gtk_image_menu_item_set_image(_native, spacerImage);
 
             //  must always re-set always-show after setting the image
             Gtk.gtk_image_menu_item_set_always_show_image(_native, true);
         }
-
-        Gtk.gtk_widget_show_all(_native);
     }
 
     // some GTK libraries DO NOT let us add items AFTER the menu has been attached to the indicator.
     // To work around this issue, we destroy then recreate the menu every time something is changed.
     // always on EDT
     void onDeleteMenu(final Pointer parentNative) {
+        if (!inMenu) {
+            return;
+        }
+
+        inMenu = false;
         Gobject.g_object_force_floating(_native);  // makes it a floating reference
         Gtk.gtk_container_remove(parentNative, _native);
     }
@@ -100,13 +121,76 @@ class GtkBaseMenuItem implements EntryPeer {
 
         // will also get:  gsignal.c:2516: signal 'child-added' is invalid for instance '0x7f1df8244080' of type 'GtkMenu'
         Gtk.gtk_menu_shell_append(parentNative, _native);
-        Gobject.g_object_ref_sink(_native);  // undoes "floating"
-        Gtk.gtk_widget_show_all(_native);    // necessary to guarantee widget is visible
+        inMenu = true;
+        Gobject.g_object_ref_sink(_native);  // undoes "floating", and the parent shows it (and all of the other entries) only once
+    }
+
+    // inserts this entry into an existing menu, at the specified position. This is used when the menu is NOT destroyed/recreated
+    // always on EDT
+    void onInsertMenu(final Pointer parentNative, final int position, final boolean hasImagesInMenu) {
+        setSpacerImage(hasImagesInMenu);
+
+        Gtk.gtk_menu_shell_insert(parentNative, _native, position);
+        inMenu = true;
+        Gobject.g_object_ref_sink(_native);  // undoes "floating", and the parent shows it (and all of the other entries) only once
+    }
+
+    // moves this entry to a different position in the menu it is already in. This is used when the menu is NOT destroyed/recreated
+    // always on EDT
+    void onMoveMenu(final Pointer parentNative, final int position) {
+        if (inMenu) {
+            Gtk.gtk_menu_reorder_child(parentNative, _native, position);
+        }
+    }
+
+    /**
+     * Removes this entry from the native menu of its parent. An entry that was never attached (ie: it was created and removed during an
+     * edit, or while its parent was being rebuilt) is not in that menu, so it is destroyed instead.
+     * <p>
+     * always on EDT
+     */
+    void removeFromMenu(final Pointer parentNative) {
+        if (inMenu) {
+            inMenu = false;
+            Gtk.gtk_container_remove(parentNative, _native); // will automatically get destroyed if no other references to it
+        }
+        else {
+            // still a floating reference that nothing owns
+            Gobject.g_object_ref_sink(_native);
+            Gtk.gtk_widget_destroy(_native);
+            Gobject.g_object_unref(_native);
+        }
+    }
+
+    /**
+     * Called instead of remove() when the native menu of our parent is destroyed with this entry still in it, which also destroys this
+     * native entry (and a sub-menu, with everything in it). Only the java side of this entry has to be released.
+     * <p>
+     * always on EDT
+     */
+    void onDestroyMenu() {
+        markRemoved();
+
+        if (!inMenu) {
+            // still a floating reference, so it is not destroyed with the menu
+            removeFromMenu(null);
+        }
+
+        inMenu = false;
+        spacerImage = null;
+    }
+
+    @Override
+    public
+    void release() {
+        markRemoved();
     }
 
     @Override
     public
     void remove() {
+        markRemoved();
+
         Gtk.dispatch(new Runnable() {
             @Override
             public
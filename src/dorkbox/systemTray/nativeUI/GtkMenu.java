@@ -15,9 +15,12 @@
  */
 package dorkbox.systemTray.nativeUI;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.sun.jna.Pointer;
@@ -28,11 +31,25 @@ import dorkbox.systemTray.Menu;
 import dorkbox.systemTray.MenuItem;
 import dorkbox.systemTray.Separator;
 import dorkbox.systemTray.Status;
+import dorkbox.systemTray.SystemTray;
+import dorkbox.systemTray.VirtualList;
+import dorkbox.systemTray.jna.linux.GCallback;
+import dorkbox.systemTray.jna.linux.GSignal;
 import dorkbox.systemTray.jna.linux.Gtk;
+import dorkbox.systemTray.jna.linux.PixbufCache;
 import dorkbox.systemTray.peer.MenuPeer;
+import dorkbox.systemTray.util.PeerUpdates;
+import dorkbox.systemTray.util.PendingShows;
 
 class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
-    // this is a list (that mirrors the actual list) BECAUSE we have to create/delete the entire menu in GTK every time something is changed
+    // property updates are coalesced, so that each changed property is only updated once per dispatch
+    private final PeerUpdates updates;
+    private final PeerUpdates imageUpdates;
+
+    // shared by every entry in the menu of the tray
+    final PeerUpdates.MenuVisibility visibility;
+
+    // this is a list (that mirrors the actual list) BECAUSE some trays have to create/delete the entire menu in GTK every time something is changed
     private final List<GtkBaseMenuItem> menuEntries = new LinkedList<GtkBaseMenuItem>();
 
     private final GtkMenu parent;
@@ -40,11 +57,35 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
 
     private volatile Pointer image;
 
+    // the ID of our "select" signal connection, which tells the menu when it is about to show
+    private long selectId = 0;
+
     // The mnemonic will ONLY show-up once a menu entry is selected. IT WILL NOT show up before then!
     // AppIndicators will only show if you use the keyboard to navigate
     // GtkStatusIconTray will show on mouse+keyboard movement
     private volatile char mnemonicKey = 0;
 
+    // while a Menu.edit() is running, native menu updates are collected here and applied once it finishes. ONLY used on the EDT
+    private static int editDepth = 0;
+    private static final Set<GtkMenu> pendingEdits = new LinkedHashSet<GtkMenu>();
+
+    // menus that have changed since they were last shown. Each is shown ONCE, after all of the queued updates have run. ONLY used on the EDT
+    private static final PendingShows<GtkMenu> pendingShows = new PendingShows<GtkMenu>() {
+        @Override
+        protected
+        void queue(final Runnable showPending) {
+            Gtk.dispatchAfterPending(showPending);
+        }
+
+        @Override
+        protected
+        void show(final GtkMenu menu) {
+            if (!menu.isRemoved() && menu._nativeMenu != null) {
+                showAll(menu._nativeMenu);
+            }
+        }
+    };
+
     // have to make sure no other methods can call obliterate, delete, or create menu once it's already started
     private AtomicBoolean obliterateInProgress = new AtomicBoolean(false);
 
@@ -54,6 +95,10 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
     GtkMenu() {
         super(null);
         this.parent = null;
+
+        this.visibility = new PeerUpdates.MenuVisibility();
+        this.updates = PeerUpdates.forGtk(visibility);
+        this.imageUpdates = PeerUpdates.forGtkBackground(visibility);
     }
 
     // This is NOT a copy constructor!
@@ -61,6 +106,10 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
     GtkMenu(final GtkMenu parent) {
         super(Gtk.gtk_image_menu_item_new_with_mnemonic("")); // is what is added to the parent menu (so images work)
         this.parent = parent;
+
+        this.visibility = parent.visibility;
+        this.updates = PeerUpdates.forGtk(visibility);
+        this.imageUpdates = PeerUpdates.forGtkBackground(visibility);
     }
 
     GtkMenu getParent() {
@@ -68,11 +117,61 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
     }
 
     /**
+     * The "select" signal of a sub-menu entry is emitted before its sub-menu pops up. AppIndicators show the menu via dbus, so they
+     * override this.
+     * <p>
+     * Sub-menus use whatever their root menu uses.
+     */
+    @Override
+    public
+    boolean notifiesShowing() {
+        if (parent != null) {
+            return parent.notifiesShowing();
+        }
+
+        return true;
+    }
+
+    // tells the menu when it is about to show. ALWAYS CALLED ON THE EDT
+    private
+    void hookShowing(final Menu menu) {
+        if (!notifiesShowing()) {
+            return;
+        }
+
+        selectId = GSignal.connect(_native, "select", new GCallback() {
+            @Override
+            public
+            int callback(final Pointer instance, final Pointer data) {
+                menu.onShowing();
+                return Gtk.TRUE;
+            }
+        });
+    }
+
+    /**
+     * Some GTK libraries DO NOT let us add items AFTER the menu has been attached to the indicator. For those, we destroy then recreate
+     * the menu every time something is changed. Everyone else inserts/removes entries in the existing menu.
+     * <p>
+     * Overridden by the tray implementations that need it. Sub-menus use whatever their root menu uses.
+     */
+    protected
+    boolean requiresRebuild() {
+        if (parent != null) {
+            return parent.requiresRebuild();
+        }
+
+        return SystemTray.FORCE_GTK_MENU_REBUILD;
+    }
+
+    /**
+     * Adds the entry at the index (which includes the status, the same as the entries of the menu), or at the end if the index is -1.
+     *
      * ALWAYS CALLED ON THE EDT
      */
     private
     void add(final GtkBaseMenuItem item, final int index) {
-        if (index > 0) {
+        if (index >= 0 && index < menuEntries.size()) {
             menuEntries.add(index, item);
         } else {
             menuEntries.add(item);
@@ -166,10 +265,211 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
             }
         }
 
-        Gtk.gtk_widget_show_all(_nativeMenu);    // necessary to guarantee widget is visible (doesn't always show_all for all children)
+        showAll(_nativeMenu);    // necessary to guarantee widget is visible (doesn't always show_all for all children)
+        onMenuAdded(_nativeMenu);
+    }
+
+    /**
+     * Destroys and recreates the native menu, or if a Menu.edit() is running, does so once the edit is finished.
+     *
+     * ALWAYS CALLED ON THE EDT
+     */
+    private
+    void rebuildMenu() {
+        if (editDepth > 0) {
+            pendingEdits.add(this);
+            return;
+        }
+
+        deleteMenu();
+        createMenu();
+    }
+
+    /**
+     * Applies all of the native menu updates that were deferred while a Menu.edit() was running
+     *
+     * ALWAYS CALLED ON THE EDT
+     */
+    private static
+    void applyEdits() {
+        List<GtkMenu> menus = new ArrayList<GtkMenu>(pendingEdits);
+        pendingEdits.clear();
+
+        for (int i = 0, menusSize = menus.size(); i < menusSize; i++) {
+            final GtkMenu menu = menus.get(i);
+
+            if (menu.isRemoved()) {
+                continue;
+            }
+
+            if (menu.requiresRebuild()) {
+                menu.deleteMenu();
+                menu.createMenu();
+            }
+            else if (menu._nativeMenu != null) {
+                showAll(menu._nativeMenu);
+            }
+        }
+    }
+
+    @Override
+    public
+    void edit(final Menu menu, final Runnable changes) {
+        // the changes are the caller's code (and can take a while for large edits), so this must not time out half-way through them
+        Gtk.dispatchAndWaitUntilDone(new Runnable() {
+            @Override
+            public
+            void run() {
+                // everything that the changes do to the peers runs directly, since we are already on the dispatch thread
+                editDepth++;
+
+                try {
+                    changes.run();
+                } finally {
+                    editDepth--;
+
+                    if (editDepth == 0) {
+                        applyEdits();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Creates the native menu (if necessary), without touching anything that is already in it.
+     *
+     * ALWAYS CALLED ON THE EDT
+     */
+    private
+    void ensureMenu() {
+        if (_nativeMenu != null) {
+            return;
+        }
+
+        _nativeMenu = Gtk.gtk_menu_new();
+
+        // binds sub-menu to entry (if it exists! it does not for the root menu)
+        if (parent != null) {
+            Gtk.gtk_menu_item_set_submenu(_native, _nativeMenu);
+        }
+
         onMenuAdded(_nativeMenu);
     }
 
+    /**
+     * Inserts a single (already added) entry into the existing native menu, and updates the spacer images of the other entries if
+     * necessary. Used instead of deleteMenu/createMenu when the menu does not have to be rebuilt.
+     *
+     * ALWAYS CALLED ON THE EDT
+     */
+    private
+    void insertMenu(final GtkBaseMenuItem item) {
+        if (obliterateInProgress.get()) {
+            return;
+        }
+
+        ensureMenu();
+
+        final boolean othersHaveImages = hasImages(item);
+        final boolean hasImages = othersHaveImages || item.hasImage();
+
+        int position = menuEntries.indexOf(item);
+        item.onInsertMenu(_nativeMenu, position, hasImages);
+
+        if (hasImages != othersHaveImages) {
+            // adding the first entry with an image requires the other entries to get a spacer image
+            updateSpacerImages(item, true);
+        }
+
+        if (editDepth > 0) {
+            // only once, when the edit is finished
+            pendingEdits.add(this);
+        }
+        else {
+            showLater();
+        }
+    }
+
+    /**
+     * Removing the last entry with an image removes the spacer images of the other entries. The item has already removed itself from
+     * our native menu. Used instead of deleteMenu/createMenu when the menu does not have to be rebuilt.
+     *
+     * ALWAYS CALLED ON THE EDT
+     */
+    private
+    void removeMenu(final GtkBaseMenuItem item) {
+        if (obliterateInProgress.get()) {
+            return;
+        }
+
+        if (item.hasImage() && !hasImages(null)) {
+            updateSpacerImages(null, false);
+            showLater();
+        }
+    }
+
+    /**
+     * The only way the native menus are shown. gtk_widget_show_all is a recursive walk of the widget, so this should only run once per
+     * changed menu (not once per entry).
+     *
+     * ALWAYS CALLED ON THE EDT
+     */
+    private static
+    void showAll(final Pointer nativeMenu) {
+        Gtk.gtk_widget_show_all(nativeMenu);
+    }
+
+    /**
+     * Shows this native menu (and everything in it), ONCE after all of the updates that are already queued have run. Entries call this
+     * instead of showing themselves, so changing many entries only walks the menu once.
+     *
+     * ALWAYS CALLED ON THE EDT
+     */
+    void showLater() {
+        pendingShows.showLater(this);
+    }
+
+    /**
+     * Shows the menus that are waiting for {@link #showLater()} right away. Used just before a menu pops up.
+     *
+     * ALWAYS CALLED ON THE EDT
+     */
+    static
+    void showPendingNow() {
+        pendingShows.showNow();
+    }
+
+    /**
+     * @return true if any entry (except for the skipped one) has an image
+     */
+    private
+    boolean hasImages(final GtkBaseMenuItem skip) {
+        for (int i = 0, menuEntriesSize = menuEntries.size(); i < menuEntriesSize; i++) {
+            final GtkBaseMenuItem menuEntry__ = menuEntries.get(i);
+            if (menuEntry__ != skip && menuEntry__.hasImage()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * the menu entry looks FUNKY when there are a mis-match of entries WITH and WITHOUT images
+     *
+     * ALWAYS CALLED ON THE EDT
+     */
+    private
+    void updateSpacerImages(final GtkBaseMenuItem skip, final boolean hasImages) {
+        for (int i = 0, menuEntriesSize = menuEntries.size(); i < menuEntriesSize; i++) {
+            final GtkBaseMenuItem menuEntry__ = menuEntries.get(i);
+            if (menuEntry__ != skip) {
+                menuEntry__.setSpacerImage(hasImages);
+            }
+        }
+    }
+
     /**
      * Completely obliterates the menu, no possible way to reconstruct it.
      *
@@ -180,18 +480,8 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
         if (_nativeMenu != null && !obliterateInProgress.get()) {
             obliterateInProgress.set(true);
 
-            // have to remove all other menu entries
-
-            // a copy is made because sub-menus remove themselves from parents when .remove() is called. If we don't
-            // do this, errors will be had because indices don't line up anymore.
-            ArrayList<GtkBaseMenuItem> menuEntriesCopy = new ArrayList<GtkBaseMenuItem>(menuEntries);
-            menuEntries.clear();
-
-            for (int i = 0, menuEntriesSize = menuEntriesCopy.size(); i < menuEntriesSize; i++) {
-                final GtkBaseMenuItem menuEntry__ = menuEntriesCopy.get(i);
-                menuEntry__.remove();
-            }
-            menuEntriesCopy.clear();
+            // the native entries (and sub-menus) are destroyed with the native menu, so they are not removed from it one at a time
+            destroyEntries();
 
             Gtk.gtk_widget_destroy(_nativeMenu);
             _nativeMenu = null;
@@ -200,6 +490,40 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
         }
     }
 
+    /**
+     * Releases the java side of every entry in this menu, because the native menu is about to be destroyed (with all of them in it).
+     *
+     * ALWAYS CALLED ON THE EDT
+     */
+    private
+    void destroyEntries() {
+        for (int i = 0, menuEntriesSize = menuEntries.size(); i < menuEntriesSize; i++) {
+            menuEntries.get(i).onDestroyMenu();
+        }
+        menuEntries.clear();
+    }
+
+    @Override
+    void onDestroyMenu() {
+        GSignal.disconnect(selectId);
+        pendingEdits.remove(this);
+
+        // our native menu is a sub-menu of our native entry, so it is destroyed with it
+        destroyEntries();
+        _nativeMenu = null;
+
+        super.onDestroyMenu();
+    }
+
+    @Override
+    public
+    void release() {
+        super.release();
+
+        updates.cancel();
+        imageUpdates.cancel();
+    }
+
     @Override
     public
     void add(final Menu parentMenu, final Entry entry, final int index) {
@@ -208,40 +532,69 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
             @Override
             public
             void run() {
+                final boolean rebuild = requiresRebuild();
+
                 // some GTK libraries DO NOT let us add items AFTER the menu has been attached to the indicator.
                 // To work around this issue, we destroy then recreate the menu every time something is changed.
-                deleteMenu();
+                if (rebuild) {
+                    if (editDepth == 0) {
+                        deleteMenu();
+                    }
+                }
+                else {
+                    ensureMenu();
+                }
+
+                GtkBaseMenuItem item = null;
 
                 if (entry instanceof Menu) {
                     // some implementations of appindicator, do NOT like having a menu added, which has no menu items yet.
                     // see: https://bugs.launchpad.net/glipper/+bug/1203888
 
-                    GtkMenu item = new GtkMenu(GtkMenu.this);
+                    item = new GtkMenu(GtkMenu.this);
                     add(item, index);
-                    ((Menu) entry).bind(item, parentMenu, parentMenu.getSystemTray());
+                    ((Menu) entry).bind((GtkMenu) item, parentMenu, parentMenu.getSystemTray());
+                    ((GtkMenu) item).hookShowing((Menu) entry);
                 }
                 else if (entry instanceof Separator) {
-                    GtkMenuItemSeparator item = new GtkMenuItemSeparator(GtkMenu.this);
+                    item = new GtkMenuItemSeparator(GtkMenu.this);
                     add(item, index);
-                    entry.bind(item, parentMenu, parentMenu.getSystemTray());
+                    entry.bind((GtkMenuItemSeparator) item, parentMenu, parentMenu.getSystemTray());
                 }
                 else if (entry instanceof Checkbox) {
-                    GtkMenuItemCheckbox item = new GtkMenuItemCheckbox(GtkMenu.this);
+                    item = new GtkMenuItemCheckbox(GtkMenu.this);
                     add(item, index);
-                    ((Checkbox) entry).bind(item, parentMenu, parentMenu.getSystemTray());
+                    ((Checkbox) entry).bind((GtkMenuItemCheckbox) item, parentMenu, parentMenu.getSystemTray());
                 }
                 else if (entry instanceof Status) {
-                    GtkMenuItemStatus item = new GtkMenuItemStatus(GtkMenu.this);
+                    item = new GtkMenuItemStatus(GtkMenu.this);
+                    add(item, index);
+                    ((Status) entry).bind((GtkMenuItemStatus) item, parentMenu, parentMenu.getSystemTray());
+                }
+                else if (entry instanceof VirtualList) {
+                    SystemTray.logger.warn("Virtual lists are not supported by native GTK menus, and will not be shown.");
+
+                    item = new GtkVirtualList(GtkMenu.this);
                     add(item, index);
-                    ((Status) entry).bind(item, parentMenu, parentMenu.getSystemTray());
+                    ((VirtualList) entry).bind((GtkVirtualList) item, parentMenu, parentMenu.getSystemTray());
                 }
                 else if (entry instanceof MenuItem) {
-                    GtkMenuItem item = new GtkMenuItem(GtkMenu.this);
+                    item = new GtkMenuItem(GtkMenu.this);
                     add(item, index);
-                    ((MenuItem) entry).bind(item, parentMenu, parentMenu.getSystemTray());
+                    ((MenuItem) entry).bind((GtkMenuItem) item, parentMenu, parentMenu.getSystemTray());
                 }
 
-                createMenu();
+                if (rebuild) {
+                    if (editDepth == 0) {
+                        createMenu();
+                    }
+                    else {
+                        pendingEdits.add(GtkMenu.this);
+                    }
+                }
+                else if (item != null) {
+                    insertMenu(item);
+                }
             }
         });
     }
@@ -259,26 +612,39 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
         // is overridden by system tray
         setLegitImage(menuItem.getImage() != null);
 
-        Gtk.dispatch(new Runnable() {
+        // nobody is waiting on entry images, so they should not get in the way of anything else
+        imageUpdates.update(PeerUpdates.IMAGE, new Runnable() {
             @Override
             public
             void run() {
-                if (image != null) {
-                    Gtk.gtk_container_remove(_native, image); // will automatically get destroyed if no other references to it
-                    image = null;
-                    Gtk.gtk_widget_show_all(_native);
+                if (isRemoved()) {
+                    // removed (and possibly destroyed) while this was waiting to run
+                    return;
                 }
 
-                if (menuItem.getImage() != null) {
-                    image = Gtk.gtk_image_new_from_file(menuItem.getImage()
-                                                                .getAbsolutePath());
+                final File imageFile = menuItem.getImage();
+
+                if (imageFile == null) {
+                    if (image != null) {
+                        Gtk.gtk_container_remove(_native, image);  // will automatically get destroyed if no other references to it
+                        image = null;
+                    }
+                }
+                else if (image != null) {
+                    // the image is decoded only once, and the existing image is updated in place
+                    Gtk.gtk_image_set_from_pixbuf(image, PixbufCache.get(imageFile));
+                }
+                else {
+                    image = Gtk.gtk_image_new_from_pixbuf(PixbufCache.get(imageFile));
                     Gtk.gtk_image_menu_item_set_image(_native, image);
 
                     //  must always re-set always-show after setting the image
                     Gtk.gtk_image_menu_item_set_always_show_image(_native, true);
                 }
 
-                Gtk.gtk_widget_show_all(_native);
+                if (parent != null) {
+                    parent.showLater();
+                }
             }
         });
     }
@@ -288,7 +654,7 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
     public
     void setEnabled(final MenuItem menuItem) {
         // is overridden by system tray
-        Gtk.dispatch(new Runnable() {
+        updates.update(PeerUpdates.ENABLED, new Runnable() {
             @Override
             public
             void run() {
@@ -327,12 +693,14 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
             textWithMnemonic = menuItem.getText();
         }
 
-        Gtk.dispatch(new Runnable() {
+        updates.update(PeerUpdates.TEXT, new Runnable() {
             @Override
             public
             void run() {
                 Gtk.gtk_menu_item_set_label(_native, textWithMnemonic);
-                Gtk.gtk_widget_show_all(_native);
+                if (parent != null) {
+                    parent.showLater();
+                }
             }
         });
     }
@@ -353,6 +721,32 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
         setText(menuItem);
     }
 
+    @Override
+    public
+    void move(final int index, final int newIndex) {
+        Gtk.dispatch(new Runnable() {
+            @Override
+            public
+            void run() {
+                if (index >= menuEntries.size()) {
+                    return;
+                }
+
+                // the same native entry, so nothing about it has to be created again
+                final GtkBaseMenuItem item = menuEntries.remove(index);
+                menuEntries.add(Math.min(newIndex, menuEntries.size()), item);
+
+                if (requiresRebuild()) {
+                    rebuildMenu();
+                }
+                else if (_nativeMenu != null) {
+                    // it is already shown, so nothing else has to change
+                    item.onMoveMenu(_nativeMenu, menuEntries.indexOf(item));
+                }
+            }
+        });
+    }
+
     /**
      * called when a child removes itself from the parent menu. Does not work for sub-menus
      *
@@ -362,21 +756,32 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
     void remove(final GtkBaseMenuItem item) {
         menuEntries.remove(item);
 
-        // have to rebuild the menu now...
-        deleteMenu();  // must be on EDT
-        createMenu();  // must be on EDT
+        if (requiresRebuild()) {
+            // have to rebuild the menu now...
+            rebuildMenu();  // must be on EDT
+        }
+        else {
+            removeMenu(item);
+        }
     }
 
     // a child will always remove itself from the parent.
     @Override
     public
     void remove() {
+        markRemoved();
+        // deferred updates must not run after the native widget is gone
+        updates.cancel();
+        imageUpdates.cancel();
+
         Gtk.dispatch(new Runnable() {
             @Override
             public
             void run() {
                 GtkMenu parent = getParent();
 
+                GSignal.disconnect(selectId);
+
                 if (parent != null) {
                     // have to remove from the  parent.menuEntries first
                     parent.menuEntries.remove(GtkMenu.this);
@@ -389,9 +794,14 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
                     // remove the gtk entry item from our menu NATIVE components
                     Gtk.gtk_menu_item_set_submenu(_native, null);
 
-                    // have to rebuild the menu now...
-                    parent.deleteMenu();  // must be on EDT
-                    parent.createMenu();  // must be on EDT
+                    if (parent.requiresRebuild()) {
+                        // have to rebuild the menu now...
+                        parent.rebuildMenu();  // must be on EDT
+                    }
+                    else if (parent._nativeMenu != null) {
+                        removeFromMenu(parent._nativeMenu);
+                        parent.removeMenu(GtkMenu.this);
+                    }
                 }
             }
         });
@@ -16,19 +16,29 @@
 package dorkbox.systemTray.nativeUI;
 
 import java.awt.event.ActionListener;
+import java.io.File;
 
 import com.sun.jna.Pointer;
 
 import dorkbox.systemTray.MenuItem;
 import dorkbox.systemTray.SystemTray;
 import dorkbox.systemTray.jna.linux.GCallback;
-import dorkbox.systemTray.jna.linux.Gobject;
+import dorkbox.systemTray.jna.linux.GSignal;
 import dorkbox.systemTray.jna.linux.Gtk;
+import dorkbox.systemTray.jna.linux.PixbufCache;
 import dorkbox.systemTray.peer.MenuItemPeer;
+import dorkbox.systemTray.util.PeerUpdates;
 
 class GtkMenuItem extends GtkBaseMenuItem implements MenuItemPeer, GCallback {
+    // property updates are coalesced, so that each changed property is only updated once per dispatch
+    private final PeerUpdates updates;
+    private final PeerUpdates imageUpdates;
+
     private final GtkMenu parent;
 
+    // the ID of our "activate" signal connection. The GSignal trampoline uses this to find us when this entry is clicked
+    private final long activateId;
+
     // these have to be volatile, because they can be changed from any thread
     private volatile MenuItem menuItemForActionCallback;
     private volatile Pointer image;
@@ -46,7 +56,9 @@ class GtkMenuItem extends GtkBaseMenuItem implements MenuItemPeer, GCallback {
         super(Gtk.gtk_image_menu_item_new_with_mnemonic(""));
 
         this.parent = parent;
-        Gobject.g_signal_connect_object(_native, "activate", this, null, 0);
+        this.updates = PeerUpdates.forGtk(parent.visibility);
+        this.imageUpdates = PeerUpdates.forGtkBackground(parent.visibility);
+        activateId = GSignal.connect(_native, "activate", this);
     }
 
 
@@ -77,26 +89,37 @@ class GtkMenuItem extends GtkBaseMenuItem implements MenuItemPeer, GCallback {
     void setImage(final MenuItem menuItem) {
         setLegitImage(menuItem.getImage() != null);
 
-        Gtk.dispatch(new Runnable() {
+        // nobody is waiting on entry images, so they should not get in the way of anything else
+        imageUpdates.update(PeerUpdates.IMAGE, new Runnable() {
             @Override
             public
             void run() {
-                if (image != null) {
-                    Gtk.gtk_container_remove(_native, image);  // will automatically get destroyed if no other references to it
-                    image = null;
-                    Gtk.gtk_widget_show_all(_native);
+                if (isRemoved()) {
+                    // removed (and possibly destroyed) while this was waiting to run
+                    return;
                 }
 
-                if (menuItem.getImage() != null) {
-                    image = Gtk.gtk_image_new_from_file(menuItem.getImage()
-                                                                .getAbsolutePath());
+                final File imageFile = menuItem.getImage();
+
+                if (imageFile == null) {
+                    if (image != null) {
+                        Gtk.gtk_container_remove(_native, image);  // will automatically get destroyed if no other references to it
+                        image = null;
+                    }
+                }
+                else if (image != null) {
+                    // the image is decoded only once, and the existing image is updated in place
+                    Gtk.gtk_image_set_from_pixbuf(image, PixbufCache.get(imageFile));
+                }
+                else {
+                    image = Gtk.gtk_image_new_from_pixbuf(PixbufCache.get(imageFile));
                     Gtk.gtk_image_menu_item_set_image(_native, image);
 
                     //  must always re-set always-show after setting the image
                     Gtk.gtk_image_menu_item_set_always_show_image(_native, true);
                 }
 
-                Gtk.gtk_widget_show_all(_native);
+                parent.showLater();
             }
         });
     }
@@ -104,7 +127,7 @@ class GtkMenuItem extends GtkBaseMenuItem implements MenuItemPeer, GCallback {
     @Override
     public
     void setEnabled(final MenuItem menuItem) {
-        Gtk.dispatch(new Runnable() {
+        updates.update(PeerUpdates.ENABLED, new Runnable() {
             @Override
             public
             void run() {
@@ -141,12 +164,12 @@ class GtkMenuItem extends GtkBaseMenuItem implements MenuItemPeer, GCallback {
             textWithMnemonic = menuItem.getText();
         }
 
-        Gtk.dispatch(new Runnable() {
+        updates.update(PeerUpdates.TEXT, new Runnable() {
             @Override
             public
             void run() {
                 Gtk.gtk_menu_item_set_label(_native, textWithMnemonic);
-                Gtk.gtk_widget_show_all(_native);
+                parent.showLater();
             }
         });
     }
@@ -165,15 +188,39 @@ class GtkMenuItem extends GtkBaseMenuItem implements MenuItemPeer, GCallback {
         setText(menuItem);
     }
 
+    @Override
+    void onDestroyMenu() {
+        GSignal.disconnect(activateId);
+
+        menuItemForActionCallback = null;
+        image = null;
+
+        super.onDestroyMenu();
+    }
+
+    @Override
+    public
+    void release() {
+        super.release();
+
+        updates.cancel();
+        imageUpdates.cancel();
+    }
+
     @SuppressWarnings("Duplicates")
     @Override
     public
     void remove() {
+        markRemoved();
+        // deferred updates must not run after the native widget is gone
+        updates.cancel();
+        imageUpdates.cancel();
+
         Gtk.dispatch(new Runnable() {
             @Override
             public
             void run() {
-                Gtk.gtk_container_remove(parent._nativeMenu, _native); // will automatically get destroyed if no other references to it
+                GSignal.disconnect(activateId);
 
                 GtkMenuItem.super.remove();
 
@@ -183,6 +230,9 @@ class GtkMenuItem extends GtkBaseMenuItem implements MenuItemPeer, GCallback {
                     image = null;
                 }
 
+                // last, because the native entry might be destroyed by this
+                removeFromMenu(parent._nativeMenu);
+
                 parent.remove(GtkMenuItem.this);
             }
         });
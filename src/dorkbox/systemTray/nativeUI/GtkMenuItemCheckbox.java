@@ -21,16 +21,23 @@ import java.awt.event.ActionListener;
 import com.sun.jna.Pointer;
 
 import dorkbox.systemTray.Checkbox;
-import dorkbox.systemTray.SystemTray;
 import dorkbox.systemTray.jna.linux.GCallback;
-import dorkbox.systemTray.jna.linux.Gobject;
+import dorkbox.systemTray.jna.linux.GSignal;
 import dorkbox.systemTray.jna.linux.Gtk;
 import dorkbox.systemTray.peer.CheckboxPeer;
+import dorkbox.systemTray.util.CallbackExecutor;
+import dorkbox.systemTray.util.PeerUpdates;
 
 // ElementaryOS shows the checkbox on the right, everyone else is on the left. With eOS, we CANNOT show the spacer image. It does not work
 class GtkMenuItemCheckbox extends GtkBaseMenuItem implements CheckboxPeer, GCallback {
+    // property updates are coalesced, so that each changed property is only updated once per dispatch
+    private final PeerUpdates updates;
+
     private final GtkMenu parent;
 
+    // the ID of our "activate" signal connection. The GSignal trampoline uses this to find us when this entry is clicked
+    private final long activateId;
+
     // these have to be volatile, because they can be changed from any thread
     private volatile ActionListener callback;
     private volatile boolean isChecked = false;
@@ -48,8 +55,9 @@ class GtkMenuItemCheckbox extends GtkBaseMenuItem implements CheckboxPeer, GCall
     GtkMenuItemCheckbox(final GtkMenu parent) {
         super(Gtk.gtk_check_menu_item_new_with_mnemonic(""));
         this.parent = parent;
+        this.updates = PeerUpdates.forGtk(parent.visibility);
 
-        Gobject.g_signal_connect_object(_native, "activate", this, null, 0);
+        activateId = GSignal.connect(_native, "activate", this);
     }
 
     // called by native code
@@ -77,7 +85,7 @@ class GtkMenuItemCheckbox extends GtkBaseMenuItem implements CheckboxPeer, GCall
     @Override
     public
     void setEnabled(final Checkbox menuItem) {
-        Gtk.dispatch(new Runnable() {
+        updates.update(PeerUpdates.ENABLED, new Runnable() {
             @Override
             public
             void run() {
@@ -109,12 +117,12 @@ class GtkMenuItemCheckbox extends GtkBaseMenuItem implements CheckboxPeer, GCall
             textWithMnemonic = menuItem.getText();
         }
 
-        Gtk.dispatch(new Runnable() {
+        updates.update(PeerUpdates.TEXT, new Runnable() {
             @Override
             public
             void run() {
                 Gtk.gtk_menu_item_set_label(_native, textWithMnemonic);
-                Gtk.gtk_widget_show_all(_native);
+                parent.showLater();
             }
         });
     }
@@ -133,14 +141,10 @@ class GtkMenuItemCheckbox extends GtkBaseMenuItem implements CheckboxPeer, GCall
                     // this will run on the EDT, since we are calling it from the EDT
                     menuItem.setChecked(!isChecked);
 
-                    // we want it to run on the EDT, but with our own action event info (so it is consistent across all platforms)
+                    // we want it to run with our own action event info (so it is consistent across all platforms)
                     ActionListener cb = menuItem.getCallback();
                     if (cb != null) {
-                        try {
-                            cb.actionPerformed(new ActionEvent(menuItem, ActionEvent.ACTION_PERFORMED, ""));
-                        } catch (Throwable throwable) {
-                            SystemTray.logger.error("Error calling menu entry {} click event.", menuItem.getText(), throwable);
-                        }
+                        CallbackExecutor.click(menuItem, menuItem.getText(), cb);
                     }
                 }
             };
@@ -152,7 +156,7 @@ class GtkMenuItemCheckbox extends GtkBaseMenuItem implements CheckboxPeer, GCall
     void setChecked(final Checkbox checkbox) {
         this.isChecked = checkbox.getChecked();
         
-        Gtk.dispatch(new Runnable() {
+        updates.update(PeerUpdates.CHECKED, new Runnable() {
             @Override
             public
             void run() {
@@ -169,15 +173,33 @@ class GtkMenuItemCheckbox extends GtkBaseMenuItem implements CheckboxPeer, GCall
         setText(checkbox);
     }
 
+    @Override
+    void onDestroyMenu() {
+        GSignal.disconnect(activateId);
+        image = null;
+
+        super.onDestroyMenu();
+    }
+
+    @Override
+    public
+    void release() {
+        super.release();
+        updates.cancel();
+    }
+
     @SuppressWarnings("Duplicates")
     @Override
     public
     void remove() {
+        // deferred updates must not run after the native widget is gone
+        updates.cancel();
+
         Gtk.dispatch(new Runnable() {
             @Override
             public
             void run() {
-                Gtk.gtk_container_remove(parent._nativeMenu, _native);  // will automatically get destroyed if no other references to it
+                GSignal.disconnect(activateId);
 
                 GtkMenuItemCheckbox.super.remove();
 
@@ -186,6 +208,9 @@ class GtkMenuItemCheckbox extends GtkBaseMenuItem implements CheckboxPeer, GCall
                     image = null;
                 }
 
+                // last, because the native entry might be destroyed by this
+                removeFromMenu(parent._nativeMenu);
+
                 parent.remove(GtkMenuItemCheckbox.this);
             }
         });
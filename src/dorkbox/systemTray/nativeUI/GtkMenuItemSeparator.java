@@ -39,7 +39,7 @@ class GtkMenuItemSeparator extends GtkBaseMenuItem implements EntryPeer {
             @Override
             public
             void run() {
-                Gtk.gtk_container_remove(parent._nativeMenu, _native);  // will automatically get destroyed if no other references to it
+                removeFromMenu(parent._nativeMenu);
 
                 parent.remove(GtkMenuItemSeparator.this);
             }
@@ -18,10 +18,13 @@ package dorkbox.systemTray.nativeUI;
 import dorkbox.systemTray.Status;
 import dorkbox.systemTray.jna.linux.Gtk;
 import dorkbox.systemTray.peer.StatusPeer;
+import dorkbox.systemTray.util.PeerUpdates;
 
 // you might wonder WHY this extends MenuEntryItem -- the reason is that an AppIndicator "status" will be offset from everyone else,
 // where a GtkStatusIconTray + SwingUI will have everything lined up. (with or without icons).  This is to normalize how it looks
 class GtkMenuItemStatus extends GtkBaseMenuItem implements StatusPeer {
+    // property updates are coalesced, so that each changed property is only updated once per dispatch
+    private final PeerUpdates updates;
 
     private final GtkMenu parent;
 
@@ -32,6 +35,7 @@ class GtkMenuItemStatus extends GtkBaseMenuItem implements StatusPeer {
     GtkMenuItemStatus(final GtkMenu parent) {
         super(Gtk.gtk_image_menu_item_new_with_mnemonic(""));
         this.parent = parent;
+        this.updates = PeerUpdates.forGtk(parent.visibility);
 
         // need that extra space so it matches windows/mac
         setLegitImage(false);
@@ -40,7 +44,7 @@ class GtkMenuItemStatus extends GtkBaseMenuItem implements StatusPeer {
     @Override
     public
     void setText(final Status menuItem) {
-        Gtk.dispatch(new Runnable() {
+        updates.update(PeerUpdates.TEXT, new Runnable() {
             @Override
             public
             void run() {
@@ -48,25 +52,36 @@ class GtkMenuItemStatus extends GtkBaseMenuItem implements StatusPeer {
                 // https://mail.gnome.org/archives/commits-list/2016-March/msg05444.html
 
                 Gtk.gtk_menu_item_set_label(_native, menuItem.getText());
-                Gtk.gtk_widget_show_all(_native);
+                parent.showLater();
 
                 Gtk.gtk_widget_set_sensitive(_native, false);
             }
         });
     }
 
+    @Override
+    public
+    void release() {
+        super.release();
+        updates.cancel();
+    }
+
     @SuppressWarnings("Duplicates")
     @Override
     public
     void remove() {
+        // deferred updates must not run after the native widget is gone
+        updates.cancel();
+
         Gtk.dispatch(new Runnable() {
             @Override
             public
             void run() {
-                Gtk.gtk_container_remove(parent._nativeMenu, _native); // will automatically get destroyed if no other references to it
-
                 GtkMenuItemStatus.super.remove();
 
+                // last, because the native entry might be destroyed by this
+                removeFromMenu(parent._nativeMenu);
+
                 parent.remove(GtkMenuItemStatus.this);
             }
         });
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2016 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.nativeUI;
+
+import dorkbox.systemTray.VirtualList;
+import dorkbox.systemTray.jna.linux.Gtk;
+import dorkbox.systemTray.peer.ListPeer;
+
+/**
+ * Native GTK menus cannot show a virtual list. This is a native entry that is never shown, which only holds the place of the list in the
+ * menu, so the native entries after it are still added (and moved) to the correct positions.
+ */
+class GtkVirtualList extends GtkBaseMenuItem implements ListPeer {
+
+    private final GtkMenu parent;
+
+    /**
+     * called from inside dispatch thread. ONLY creates the menu item, but DOES NOT attach it!
+     * this is a FLOATING reference. See: https://developer.gnome.org/gobject/stable/gobject-The-Base-Object-Type.html#floating-ref
+     */
+    GtkVirtualList(final GtkMenu parent) {
+        super(Gtk.gtk_separator_menu_item_new());
+        this.parent = parent;
+
+        // the menu is shown with show_all, which must skip this
+        Gtk.gtk_widget_set_no_show_all(_native, true);
+    }
+
+    @Override
+    public
+    void setRows(final VirtualList list) {
+        // nothing is shown
+    }
+
+    @SuppressWarnings("Duplicates")
+    @Override
+    public
+    void remove() {
+        Gtk.dispatch(new Runnable() {
+            @Override
+            public
+            void run() {
+                removeFromMenu(parent._nativeMenu);
+
+                parent.remove(GtkVirtualList.this);
+            }
+        });
+    }
+
+    public
+    boolean hasImage() {
+        return false;
+    }
+
+    public
+    void setSpacerImage(final boolean everyoneElseHasImages) {
+        // no op
+    }
+}
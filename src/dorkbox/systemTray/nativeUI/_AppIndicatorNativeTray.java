@@ -24,6 +24,7 @@ import dorkbox.systemTray.MenuItem;
 import dorkbox.systemTray.SystemTray;
 import dorkbox.systemTray.Tray;
 import dorkbox.systemTray.jna.linux.AppIndicator;
+import dorkbox.systemTray.jna.linux.AppIndicatorFrames;
 import dorkbox.systemTray.jna.linux.AppIndicatorInstanceStruct;
 import dorkbox.systemTray.jna.linux.Gobject;
 import dorkbox.systemTray.jna.linux.Gtk;
@@ -90,6 +91,27 @@ class _AppIndicatorNativeTray extends Tray implements NativeUI {
     // has the name already been set for the indicator?
     private volatile boolean setName = false;
 
+    // frames from setImagePixels() are written to a ring of files (in RAM) instead of to the image cache
+    private final AppIndicatorFrames frames = new AppIndicatorFrames() {
+        @Override
+        protected
+        AppIndicatorInstanceStruct getIndicator() {
+            return appIndicator;
+        }
+
+        @Override
+        protected
+        void showIcon(final String iconName) {
+            AppIndicator.app_indicator_set_icon(appIndicator, iconName);
+
+            if (!isActive) {
+                isActive = true;
+
+                AppIndicator.app_indicator_set_status(appIndicator, AppIndicator.STATUS_ACTIVE);
+            }
+        }
+    };
+
 
     // appindicators DO NOT support anything other than PLAIN gtk-menus (which we hack to support swing menus)
     //   they ALSO do not support tooltips, so we cater to the lowest common denominator
@@ -103,6 +125,24 @@ class _AppIndicatorNativeTray extends Tray implements NativeUI {
 
         // we override various methods, because each tray implementation is SLIGHTLY different. This allows us customization.
         final GtkMenu gtkMenu = new GtkMenu() {
+            /**
+             * libappindicator (GTK2) does not pick up entries added/removed AFTER the menu has been attached to the indicator.
+             */
+            @Override
+            protected
+            boolean requiresRebuild() {
+                return super.requiresRebuild() || !AppIndicator.isVersion3;
+            }
+
+            /**
+             * The menu is shown by the indicator service (via dbus), which does not tell us when a sub-menu is about to show.
+             */
+            @Override
+            public
+            boolean notifiesShowing() {
+                return false;
+            }
+
             /**
              * MUST BE AFTER THE ITEM IS ADDED/CHANGED from the menu
              *
@@ -205,6 +245,8 @@ class _AppIndicatorNativeTray extends Tray implements NativeUI {
                             AppIndicator.app_indicator_set_status(savedAppIndicator, AppIndicator.STATUS_PASSIVE);
                             Pointer p = savedAppIndicator.getPointer();
                             Gobject.g_object_unref(p);
+
+                            frames.delete();
                         }
                     });
 
@@ -232,6 +274,18 @@ class _AppIndicatorNativeTray extends Tray implements NativeUI {
         bind(gtkMenu, null, systemTray);
     }
 
+    /**
+     * Shows the pixels from a small ring of files in a RAM-backed directory, so frames are not written to the image cache (on disk).
+     */
+    @Override
+    public
+    void setImagePixels(final int width, final int height, final int[] argb) {
+        if (!frames.show(width, height, argb)) {
+            // there is no RAM-backed directory, so it goes through the image cache instead
+            super.setImagePixels(width, height, argb);
+        }
+    }
+
     @Override
     public final
     boolean hasImage() {
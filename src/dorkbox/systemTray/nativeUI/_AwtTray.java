@@ -26,8 +26,8 @@ import javax.swing.ImageIcon;
 
 import dorkbox.systemTray.MenuItem;
 import dorkbox.systemTray.Tray;
+import dorkbox.systemTray.util.SwingDispatch;
 import dorkbox.util.OS;
-import dorkbox.util.SwingUtil;
 
 /**
  * Class for handling all system tray interaction, via AWT. Pretty much EXCLUSIVELY for on MacOS, because that is the only time this
@@ -70,7 +70,7 @@ class _AwtTray extends Tray implements NativeUI {
             @Override
             public
             void setEnabled(final MenuItem menuItem) {
-                SwingUtil.invokeLater(new Runnable() {
+                SwingDispatch.invokeLater(new Runnable() {
                     @Override
                     public
                     void run() {
@@ -129,7 +129,7 @@ class _AwtTray extends Tray implements NativeUI {
                     return;
                 }
 
-                SwingUtil.invokeLater(new Runnable() {
+                SwingDispatch.invokeLater(new Runnable() {
                     @Override
                     public
                     void run() {
@@ -170,7 +170,7 @@ class _AwtTray extends Tray implements NativeUI {
             @Override
             public
             void remove() {
-                SwingUtil.invokeLater(new Runnable() {
+                SwingDispatch.invokeLater(new Runnable() {
                     @Override
                     public
                     void run() {
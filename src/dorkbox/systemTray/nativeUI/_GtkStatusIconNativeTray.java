@@ -17,16 +17,21 @@ package dorkbox.systemTray.nativeUI;
 
 import java.io.File;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.sun.jna.Pointer;
 
 import dorkbox.systemTray.MenuItem;
 import dorkbox.systemTray.SystemTray;
 import dorkbox.systemTray.Tray;
+import dorkbox.systemTray.jna.linux.GCallback;
 import dorkbox.systemTray.jna.linux.GEventCallback;
+import dorkbox.systemTray.jna.linux.GSignal;
 import dorkbox.systemTray.jna.linux.GdkEventButton;
 import dorkbox.systemTray.jna.linux.Gobject;
 import dorkbox.systemTray.jna.linux.Gtk;
+import dorkbox.systemTray.jna.linux.PixbufCache;
+import dorkbox.systemTray.util.PeerUpdates;
 
 /**
  * Class for handling all system tray interactions via GTK.
@@ -41,9 +46,16 @@ class _GtkStatusIconNativeTray extends Tray implements NativeUI {
     // http://code.metager.de/source/xref/gnome/Platform/gtk%2B/gtk/deprecated/gtkstatusicon.c
     // https://github.com/djdeath/glib/blob/master/gobject/gobject.c
 
-    // have to save these in a field to prevent GC on the objects (since they go out-of-scope from java)
+    // the ID of our "button_press_event" signal connection. GSignal keeps the callback from being GC'd until it is disconnected
     // see: https://github.com/java-native-access/jna/blob/master/www/CallbacksAndClosures.md
-    private GEventCallback gtkCallback = null;
+    private volatile long buttonPressId = 0;
+
+    // the native menu that our "deactivate" signal is connected to (it can be recreated), and the ID of that connection
+    private Pointer deactivateMenu = null;
+    private long deactivateId = 0;
+
+    // whether our menu is hidden, which is only known by this tray
+    private final PeerUpdates.MenuVisibility visibility;
 
     // This is required if we have JavaFX or SWT shutdown hooks (to prevent us from shutting down twice...)
     private AtomicBoolean shuttingDown = new AtomicBoolean();
@@ -54,6 +66,9 @@ class _GtkStatusIconNativeTray extends Tray implements NativeUI {
     private volatile boolean visible = true;
     private volatile File imageFile;
 
+    // the most recent frame from setImagePixels(), that has not been shown yet
+    private final AtomicReference<Runnable> pendingFrame = new AtomicReference<Runnable>();
+
     // called on the EDT
     public
     _GtkStatusIconNativeTray(final SystemTray systemTray) {
@@ -133,7 +148,8 @@ class _GtkStatusIconNativeTray extends Tray implements NativeUI {
 
                             // mark for GC
                             trayIcon = null;
-                            gtkCallback = null;
+                            GSignal.disconnect(buttonPressId);
+                            GSignal.disconnect(deactivateId);
                         }
                     });
 
@@ -144,6 +160,7 @@ class _GtkStatusIconNativeTray extends Tray implements NativeUI {
                 }
             }
         };
+        visibility = gtkMenu.visibility;
 
         Gtk.dispatch(new Runnable() {
             @Override
@@ -151,19 +168,24 @@ class _GtkStatusIconNativeTray extends Tray implements NativeUI {
             void run() {
                 trayIcon = Gtk.gtk_status_icon_new();
 
-                gtkCallback = new GEventCallback() {
+                buttonPressId = GSignal.connect(trayIcon, "button_press_event", new GEventCallback() {
                     @Override
                     public
-                    void callback(Pointer notUsed, final GdkEventButton event) {
+                    void callback(Pointer notUsed, final Pointer event) {
                         // show the swing menu on the EDT
                         // BUTTON_PRESS only (any mouse click)
-                        if (event.type == 4) {
+                        if (GdkEventButton.type(event) == GdkEventButton.BUTTON_PRESS) {
+                            // apply everything that was deferred while the menu was hidden
+                            visibility.onMenuShowing();
+                            // and show the changed menus now, instead of after the menu is already visible
+                            GtkMenu.showPendingNow();
+                            hookMenuClose(gtkMenu._nativeMenu);
+
                             Gtk.gtk_menu_popup(gtkMenu._nativeMenu, null, null, Gtk.gtk_status_icon_position_menu,
-                                               trayIcon, 0, event.time);
+                                               trayIcon, 0, GdkEventButton.time(event));
                         }
                     }
-                };
-                Gobject.g_signal_connect_object(trayIcon, "button_press_event", gtkCallback, null, 0);
+                });
             }
         });
 
@@ -195,9 +217,73 @@ class _GtkStatusIconNativeTray extends Tray implements NativeUI {
             }
         });
 
+        // the menu starts hidden
+        visibility.onMenuHidden();
+
         bind(gtkMenu, null, systemTray);
     }
 
+    /**
+     * Shows the pixels directly, without writing or reading any files. Only the most recent frame is shown, if they arrive faster than
+     * GTK can show them.
+     */
+    @Override
+    public
+    void setImagePixels(final int width, final int height, final int[] argb) {
+        final Runnable frame = new Runnable() {
+            @Override
+            public
+            void run() {
+                Pointer pixbuf = PixbufCache.fromPixels(width, height, argb);
+                Gtk.gtk_status_icon_set_from_pixbuf(trayIcon, pixbuf);
+                Gobject.g_object_unref(pixbuf); // the status icon keeps its own reference
+
+                if (!isActive) {
+                    isActive = true;
+                    Gtk.gtk_status_icon_set_visible(trayIcon, true);
+                }
+            }
+        };
+
+        if (pendingFrame.getAndSet(frame) == null) {
+            Gtk.dispatch(new Runnable() {
+                @Override
+                public
+                void run() {
+                    Runnable frame = pendingFrame.getAndSet(null);
+                    if (frame != null && trayIcon != null) {
+                        frame.run();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Tells PeerUpdates when the menu is hidden again. The native menu is recreated by some menu changes, so this is checked on every
+     * popup.
+     *
+     * ALWAYS CALLED ON THE EDT
+     */
+    private
+    void hookMenuClose(final Pointer nativeMenu) {
+        if (nativeMenu == null || nativeMenu.equals(deactivateMenu)) {
+            return;
+        }
+
+        GSignal.disconnect(deactivateId);
+
+        deactivateMenu = nativeMenu;
+        deactivateId = GSignal.connect(nativeMenu, "deactivate", new GCallback() {
+            @Override
+            public
+            int callback(final Pointer instance, final Pointer data) {
+                visibility.onMenuHidden();
+                return Gtk.TRUE;
+            }
+        });
+    }
+
     @Override
     public final
     boolean hasImage() {
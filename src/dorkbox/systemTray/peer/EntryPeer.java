@@ -21,4 +21,10 @@ package dorkbox.systemTray.peer;
 public
 interface EntryPeer {
     void remove();
+
+    /**
+     * Called instead of {@link #remove()} when the native entry is destroyed together with the native menu that it is in. Only what is
+     * still pending for this entry (deferred updates) is cancelled, the native entry itself is not touched.
+     */
+    void release();
 }
@@ -24,4 +24,19 @@ import dorkbox.systemTray.Menu;
 public
 interface MenuPeer extends MenuItemPeer {
     void add(Menu parentMenu, Entry entry, int index);
+
+    /**
+     * Moves the native entry at 'index' to 'newIndex' (its position after the move). Both include the status entry.
+     */
+    void move(int index, int newIndex);
+
+    /**
+     * Runs all of the changes on the event thread, and updates the native menu once (after all of them have run).
+     */
+    void edit(Menu menu, Runnable changes);
+
+    /**
+     * @return true if this peer calls {@link Menu#onShowing()} (on the event thread) before the sub-menu is shown
+     */
+    boolean notifiesShowing();
 }
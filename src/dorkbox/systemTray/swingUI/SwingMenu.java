@@ -15,10 +15,14 @@
  */
 package dorkbox.systemTray.swingUI;
 
+import java.awt.Component;
 import java.io.File;
 
 import javax.swing.ImageIcon;
 import javax.swing.JComponent;
+import javax.swing.JMenu;
+import javax.swing.event.MenuEvent;
+import javax.swing.event.MenuListener;
 
 import dorkbox.systemTray.Checkbox;
 import dorkbox.systemTray.Entry;
@@ -26,12 +30,20 @@ import dorkbox.systemTray.Menu;
 import dorkbox.systemTray.MenuItem;
 import dorkbox.systemTray.Separator;
 import dorkbox.systemTray.Status;
+import dorkbox.systemTray.VirtualList;
 import dorkbox.systemTray.peer.MenuPeer;
+import dorkbox.systemTray.util.PeerUpdates;
+import dorkbox.systemTray.util.SwingDispatch;
 import dorkbox.util.SwingUtil;
 
 // this is a weird composite class, because it must be a Menu, but ALSO a Entry -- so it has both (and duplicate code)
 @SuppressWarnings("ForLoopReplaceableByForEach")
 class SwingMenu implements MenuPeer {
+    // property updates are coalesced, so that each changed property is only updated once per dispatch
+    private final PeerUpdates updates;
+
+    // shared by every entry in the menu of the tray
+    final PeerUpdates.MenuVisibility visibility;
 
     final JComponent _native;
     private final SwingMenu parent;
@@ -39,54 +51,167 @@ class SwingMenu implements MenuPeer {
     // This is NOT a copy constructor!
     @SuppressWarnings("IncompleteCopyConstructor")
     SwingMenu(final SwingMenu parent) {
+        this(parent, -1);
+    }
+
+    // This is NOT a copy constructor!
+    @SuppressWarnings("IncompleteCopyConstructor")
+    SwingMenu(final SwingMenu parent, final int index) {
         this.parent = parent;
 
         if (parent == null) {
-            this._native = new TrayPopup();
+            this.visibility = new PeerUpdates.MenuVisibility();
+            this._native = new TrayPopup(visibility);
         }
         else {
+            this.visibility = parent.visibility;
             this._native = new AdjustedJMenu();
-            parent._native.add(this._native);
+            parent.addNative(this._native, index);
         }
+
+        this.updates = PeerUpdates.forSwing(visibility);
     }
 
     @Override
     public
     void add(final Menu parentMenu, final Entry entry, final int index) {
         // must always be called on the EDT
-        SwingUtil.invokeLater(new Runnable() {
+        SwingDispatch.invokeLater(new Runnable() {
             @Override
             public
             void run() {
                 if (entry instanceof Menu) {
-                    SwingMenu swingMenu = new SwingMenu(SwingMenu.this);
+                    SwingMenu swingMenu = new SwingMenu(SwingMenu.this, index);
                     ((Menu) entry).bind(swingMenu, parentMenu, parentMenu.getSystemTray());
+                    swingMenu.hookShowing((Menu) entry);
                 }
                 else if (entry instanceof Separator) {
-                    SwingMenuItemSeparator item = new SwingMenuItemSeparator(SwingMenu.this);
+                    SwingMenuItemSeparator item = new SwingMenuItemSeparator(SwingMenu.this, index);
                     entry.bind(item, parentMenu, parentMenu.getSystemTray());
                 }
                 else if (entry instanceof Checkbox) {
-                    SwingMenuItemCheckbox item = new SwingMenuItemCheckbox(SwingMenu.this);
+                    SwingMenuItemCheckbox item = new SwingMenuItemCheckbox(SwingMenu.this, index);
                     ((Checkbox) entry).bind(item, parentMenu, parentMenu.getSystemTray());
                 }
                 else if (entry instanceof Status) {
                     SwingMenuItemStatus item = new SwingMenuItemStatus(SwingMenu.this);
                     ((Status) entry).bind(item, parentMenu, parentMenu.getSystemTray());
                 }
+                else if (entry instanceof VirtualList) {
+                    SwingVirtualList item = new SwingVirtualList(SwingMenu.this, (VirtualList) entry, index);
+                    ((VirtualList) entry).bind(item, parentMenu, parentMenu.getSystemTray());
+                }
                 else if (entry instanceof MenuItem) {
-                    SwingMenuItem item = new SwingMenuItem(SwingMenu.this);
+                    SwingMenuItem item = new SwingMenuItem(SwingMenu.this, index);
                     ((MenuItem) entry).bind(item, parentMenu, parentMenu.getSystemTray());
                 }
             }
         });
     }
 
+    @Override
+    public
+    void move(final int index, final int newIndex) {
+        SwingDispatch.invokeLater(new Runnable() {
+            @Override
+            public
+            void run() {
+                if (index >= getNativeCount()) {
+                    return;
+                }
+
+                // the same component, so nothing about it has to be created again
+                final Component component = getNative(index);
+                _native.remove(component);
+                _native.add(component, Math.min(newIndex, getNativeCount()));
+            }
+        });
+    }
+
+    /**
+     * Adds the native entry at the index (which includes the status, the same as the entries of the menu), or at the end if the index is
+     * -1. The index is only correct because every change to the entries of the menu is applied here in the same order.
+     *
+     * ALWAYS CALLED ON THE EDT
+     */
+    void addNative(final Component component, final int index) {
+        if (index < 0 || index >= getNativeCount()) {
+            _native.add(component);
+        }
+        else {
+            _native.add(component, index);
+        }
+    }
+
+    // the native entries of a sub-menu are in its popup menu, not in the JMenu itself. ALWAYS CALLED ON THE EDT
+    private
+    int getNativeCount() {
+        if (_native instanceof JMenu) {
+            return ((JMenu) _native).getMenuComponentCount();
+        }
+
+        return _native.getComponentCount();
+    }
+
+    // ALWAYS CALLED ON THE EDT
+    private
+    Component getNative(final int index) {
+        if (_native instanceof JMenu) {
+            return ((JMenu) _native).getMenuComponent(index);
+        }
+
+        return _native.getComponent(index);
+    }
+
+    @Override
+    public
+    boolean notifiesShowing() {
+        return true;
+    }
+
+    // tells the menu when it is about to show. ALWAYS CALLED ON THE EDT
+    private
+    void hookShowing(final Menu menu) {
+        ((AdjustedJMenu) _native).addMenuListener(new MenuListener() {
+            @Override
+            public
+            void menuSelected(final MenuEvent e) {
+                menu.onShowing();
+            }
+
+            @Override
+            public
+            void menuDeselected(final MenuEvent e) {
+            }
+
+            @Override
+            public
+            void menuCanceled(final MenuEvent e) {
+            }
+        });
+    }
+
+    @Override
+    public
+    void edit(final Menu menu, final Runnable changes) {
+        SwingDispatch.invokeAndWait(new Runnable() {
+            @Override
+            public
+            void run() {
+                // everything that the changes do to the peers runs directly, since we are already on the EDT
+                changes.run();
+
+                _native.revalidate();
+                _native.repaint();
+            }
+        });
+    }
+
     // is overridden in tray impl
     @Override
     public
     void setImage(final MenuItem menuItem) {
-        SwingUtil.invokeLater(new Runnable() {
+        updates.update(PeerUpdates.IMAGE, new Runnable() {
             @Override
             public
             void run() {
@@ -106,7 +231,7 @@ class SwingMenu implements MenuPeer {
     @Override
     public
     void setEnabled(final MenuItem menuItem) {
-        SwingUtil.invokeLater(new Runnable() {
+        updates.update(PeerUpdates.ENABLED, new Runnable() {
             @Override
             public
             void run() {
@@ -120,7 +245,7 @@ class SwingMenu implements MenuPeer {
     @Override
     public
     void setText(final MenuItem menuItem) {
-        SwingUtil.invokeLater(new Runnable() {
+        updates.update(PeerUpdates.TEXT, new Runnable() {
             @Override
             public
             void run() {
@@ -143,7 +268,7 @@ class SwingMenu implements MenuPeer {
         // yikes...
         final int vKey = SwingUtil.getVirtualKey(shortcut);
 
-        SwingUtil.invokeLater(new Runnable() {
+        updates.update(PeerUpdates.SHORTCUT, new Runnable() {
             @Override
             public
             void run() {
@@ -152,13 +277,22 @@ class SwingMenu implements MenuPeer {
         });
     }
 
+    @Override
+    public
+    void release() {
+        updates.cancel();
+    }
+
     /**
      * This removes all menu entries from this menu AND this menu from it's parent
      */
     @Override
     public synchronized
     void remove() {
-        SwingUtil.invokeLater(new Runnable() {
+        // deferred updates must not run after the entry is gone
+        updates.cancel();
+
+        SwingDispatch.invokeLater(new Runnable() {
             @Override
             public
             void run() {
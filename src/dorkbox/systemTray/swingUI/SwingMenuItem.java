@@ -23,11 +23,15 @@ import javax.swing.ImageIcon;
 import javax.swing.JMenuItem;
 
 import dorkbox.systemTray.MenuItem;
-import dorkbox.systemTray.SystemTray;
 import dorkbox.systemTray.peer.MenuItemPeer;
+import dorkbox.systemTray.util.CallbackExecutor;
+import dorkbox.systemTray.util.PeerUpdates;
+import dorkbox.systemTray.util.SwingDispatch;
 import dorkbox.util.SwingUtil;
 
 class SwingMenuItem implements MenuItemPeer {
+    // property updates are coalesced, so that each changed property is only updated once per dispatch
+    private final PeerUpdates updates;
 
     private final SwingMenu parent;
     private final JMenuItem _native = new AdjustedJMenuItem();
@@ -35,15 +39,16 @@ class SwingMenuItem implements MenuItemPeer {
     private volatile ActionListener swingCallback;
 
     // this is ALWAYS called on the EDT.
-    SwingMenuItem(final SwingMenu parent) {
+    SwingMenuItem(final SwingMenu parent, final int index) {
         this.parent = parent;
-        parent._native.add(_native);
+        this.updates = PeerUpdates.forSwing(parent.visibility);
+        parent.addNative(_native, index);
     }
 
     @Override
     public
     void setImage(final MenuItem menuItem) {
-        SwingUtil.invokeLater(new Runnable() {
+        updates.update(PeerUpdates.IMAGE, new Runnable() {
             @Override
             public
             void run() {
@@ -62,7 +67,7 @@ class SwingMenuItem implements MenuItemPeer {
     @Override
     public
     void setEnabled(final MenuItem menuItem) {
-        SwingUtil.invokeLater(new Runnable() {
+        updates.update(PeerUpdates.ENABLED, new Runnable() {
             @Override
             public
             void run() {
@@ -74,7 +79,7 @@ class SwingMenuItem implements MenuItemPeer {
     @Override
     public
     void setText(final MenuItem menuItem) {
-        SwingUtil.invokeLater(new Runnable() {
+        updates.update(PeerUpdates.TEXT, new Runnable() {
             @Override
             public
             void run() {
@@ -96,14 +101,10 @@ class SwingMenuItem implements MenuItemPeer {
                 @Override
                 public
                 void actionPerformed(ActionEvent e) {
-                    // we want it to run on the EDT, but with our own action event info (so it is consistent across all platforms)
+                    // we want it to run with our own action event info (so it is consistent across all platforms)
                     ActionListener cb = menuItem.getCallback();
                     if (cb != null) {
-                        try {
-                            cb.actionPerformed(new ActionEvent(menuItem, ActionEvent.ACTION_PERFORMED, ""));
-                        } catch (Throwable throwable) {
-                            SystemTray.logger.error("Error calling menu entry {} click event.", menuItem.getText(), throwable);
-                        }
+                        CallbackExecutor.click(menuItem, menuItem.getText(), cb);
                     }
                 }
             };
@@ -122,7 +123,7 @@ class SwingMenuItem implements MenuItemPeer {
         // yikes...
         final int vKey = SwingUtil.getVirtualKey(shortcut);
 
-        SwingUtil.invokeLater(new Runnable() {
+        updates.update(PeerUpdates.SHORTCUT, new Runnable() {
             @Override
             public
             void run() {
@@ -131,11 +132,20 @@ class SwingMenuItem implements MenuItemPeer {
         });
     }
 
+    @Override
+    public
+    void release() {
+        updates.cancel();
+    }
+
     @Override
     public
     void remove() {
+        // deferred updates must not run after the entry is gone
+        updates.cancel();
+
         //noinspection Duplicates
-        SwingUtil.invokeLater(new Runnable() {
+        SwingDispatch.invokeLater(new Runnable() {
             @Override
             public
             void run() {
@@ -23,12 +23,16 @@ import javax.swing.ImageIcon;
 import javax.swing.JMenuItem;
 
 import dorkbox.systemTray.Checkbox;
-import dorkbox.systemTray.SystemTray;
 import dorkbox.systemTray.peer.CheckboxPeer;
+import dorkbox.systemTray.util.CallbackExecutor;
 import dorkbox.systemTray.util.ImageUtils;
+import dorkbox.systemTray.util.PeerUpdates;
+import dorkbox.systemTray.util.SwingDispatch;
 import dorkbox.util.SwingUtil;
 
 class SwingMenuItemCheckbox implements CheckboxPeer {
+    // property updates are coalesced, so that each changed property is only updated once per dispatch
+    private final PeerUpdates updates;
 
     private final SwingMenu parent;
     private final JMenuItem _native = new AdjustedJMenuItem();
@@ -41,9 +45,10 @@ class SwingMenuItemCheckbox implements CheckboxPeer {
     private static ImageIcon uncheckedIcon;
 
     // this is ALWAYS called on the EDT.
-    SwingMenuItemCheckbox(final SwingMenu parent) {
+    SwingMenuItemCheckbox(final SwingMenu parent, final int index) {
         this.parent = parent;
-        parent._native.add(_native);
+        this.updates = PeerUpdates.forSwing(parent.visibility);
+        parent.addNative(_native, index);
 
         if (checkedIcon == null) {
             // from Brankic1979, public domain
@@ -58,7 +63,7 @@ class SwingMenuItemCheckbox implements CheckboxPeer {
     @Override
     public
     void setEnabled(final Checkbox menuItem) {
-        SwingUtil.invokeLater(new Runnable() {
+        updates.update(PeerUpdates.ENABLED, new Runnable() {
             @Override
             public
             void run() {
@@ -70,7 +75,7 @@ class SwingMenuItemCheckbox implements CheckboxPeer {
     @Override
     public
     void setText(final Checkbox menuItem) {
-        SwingUtil.invokeLater(new Runnable() {
+        updates.update(PeerUpdates.TEXT, new Runnable() {
             @Override
             public
             void run() {
@@ -97,14 +102,10 @@ class SwingMenuItemCheckbox implements CheckboxPeer {
                     // this will run on the EDT, since we are calling it from the EDT
                     menuItem.setChecked(!isChecked);
 
-                    // we want it to run on the EDT, but with our own action event info (so it is consistent across all platforms)
+                    // we want it to run with our own action event info (so it is consistent across all platforms)
                     ActionListener cb = menuItem.getCallback();
                     if (cb != null) {
-                        try {
-                            cb.actionPerformed(new ActionEvent(menuItem, ActionEvent.ACTION_PERFORMED, ""));
-                        } catch (Throwable throwable) {
-                            SystemTray.logger.error("Error calling menu entry {} click event.", menuItem.getText(), throwable);
-                        }
+                        CallbackExecutor.click(menuItem, menuItem.getText(), cb);
                     }
                 }
             };
@@ -120,7 +121,7 @@ class SwingMenuItemCheckbox implements CheckboxPeer {
         // yikes...
         final int vKey = SwingUtil.getVirtualKey(shortcut);
 
-        SwingUtil.invokeLater(new Runnable() {
+        updates.update(PeerUpdates.SHORTCUT, new Runnable() {
             @Override
             public
             void run() {
@@ -134,7 +135,7 @@ class SwingMenuItemCheckbox implements CheckboxPeer {
     void setChecked(final Checkbox menuItem) {
         this.isChecked = menuItem.getChecked();
 
-        SwingUtil.invokeLater(new Runnable() {
+        updates.update(PeerUpdates.CHECKED, new Runnable() {
             @Override
             public
             void run() {
@@ -147,11 +148,20 @@ class SwingMenuItemCheckbox implements CheckboxPeer {
         });
     }
 
+    @Override
+    public
+    void release() {
+        updates.cancel();
+    }
+
     @Override
     public
     void remove() {
+        // deferred updates must not run after the entry is gone
+        updates.cancel();
+
         //noinspection Duplicates
-        SwingUtil.invokeLater(new Runnable() {
+        SwingDispatch.invokeLater(new Runnable() {
             @Override
             public
             void run() {
@@ -18,7 +18,7 @@ package dorkbox.systemTray.swingUI;
 import javax.swing.JSeparator;
 
 import dorkbox.systemTray.peer.EntryPeer;
-import dorkbox.util.SwingUtil;
+import dorkbox.systemTray.util.SwingDispatch;
 
 class SwingMenuItemSeparator implements EntryPeer {
 
@@ -26,15 +26,21 @@ class SwingMenuItemSeparator implements EntryPeer {
     private final JSeparator _native = new JSeparator(JSeparator.HORIZONTAL);
 
     // this is ALWAYS called on the EDT.
-    SwingMenuItemSeparator(final SwingMenu parent) {
+    SwingMenuItemSeparator(final SwingMenu parent, final int index) {
         this.parent = parent;
-        parent._native.add(_native);
+        parent.addNative(_native, index);
+    }
+
+    @Override
+    public
+    void release() {
+        // a separator has nothing that is pending
     }
 
     @Override
     public
     void remove() {
-        SwingUtil.invokeLater(new Runnable() {
+        SwingDispatch.invokeLater(new Runnable() {
             @Override
             public
             void run() {
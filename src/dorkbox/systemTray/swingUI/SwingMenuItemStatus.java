@@ -21,9 +21,12 @@ import javax.swing.JMenuItem;
 
 import dorkbox.systemTray.Status;
 import dorkbox.systemTray.peer.StatusPeer;
-import dorkbox.util.SwingUtil;
+import dorkbox.systemTray.util.PeerUpdates;
+import dorkbox.systemTray.util.SwingDispatch;
 
 class SwingMenuItemStatus implements StatusPeer {
+    // property updates are coalesced, so that each changed property is only updated once per dispatch
+    private final PeerUpdates updates;
 
     private final SwingMenu parent;
     private final JMenuItem _native = new AdjustedJMenuItem();
@@ -31,6 +34,7 @@ class SwingMenuItemStatus implements StatusPeer {
     // this is ALWAYS called on the EDT.
     SwingMenuItemStatus(final SwingMenu parent) {
         this.parent = parent;
+        this.updates = PeerUpdates.forSwing(parent.visibility);
 
         // status is ALWAYS at 0 index...
         parent._native.add(_native, 0);
@@ -39,7 +43,7 @@ class SwingMenuItemStatus implements StatusPeer {
     @Override
     public
     void setText(final Status menuItem) {
-        SwingUtil.invokeLater(new Runnable() {
+        updates.update(PeerUpdates.TEXT, new Runnable() {
             @Override
             public
             void run() {
@@ -55,10 +59,19 @@ class SwingMenuItemStatus implements StatusPeer {
         });
     }
 
+    @Override
+    public
+    void release() {
+        updates.cancel();
+    }
+
     @Override
     public
     void remove() {
-        SwingUtil.invokeLater(new Runnable() {
+        // deferred updates must not run after the entry is gone
+        updates.cancel();
+
+        SwingDispatch.invokeLater(new Runnable() {
             @Override
             public
             void run() {
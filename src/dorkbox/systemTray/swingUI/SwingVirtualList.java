@@ -0,0 +1,202 @@
+/*
+ * Copyright 2016 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.swingUI;
+
+import java.awt.Component;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+
+import javax.swing.AbstractListModel;
+import javax.swing.BorderFactory;
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.JList;
+import javax.swing.JScrollPane;
+import javax.swing.ListSelectionModel;
+import javax.swing.MenuSelectionManager;
+import javax.swing.UIManager;
+
+import dorkbox.systemTray.VirtualList;
+import dorkbox.systemTray.peer.ListPeer;
+import dorkbox.systemTray.util.CallbackExecutor;
+import dorkbox.systemTray.util.PeerUpdates;
+import dorkbox.systemTray.util.SwingDispatch;
+
+/**
+ * A JList in a scroll pane. JList only renders the visible rows (with one, shared, renderer component), and the rows all have the size of
+ * the prototype row, so nothing here depends on how many rows there are.
+ */
+@SuppressWarnings({"unchecked", "rawtypes"})
+class SwingVirtualList implements ListPeer {
+    // property updates are coalesced, so that each changed property is only updated once per dispatch
+    private final PeerUpdates updates;
+
+    private final SwingMenu parent;
+    private final JList _native = new JList();
+    private final JScrollPane scrollPane;
+
+    private static
+    class RowsModel extends AbstractListModel {
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> rows;
+
+        RowsModel(final List<String> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public
+        int getSize() {
+            return rows.size();
+        }
+
+        @Override
+        public
+        Object getElementAt(final int index) {
+            return rows.get(index);
+        }
+    }
+
+    // this is ALWAYS called on the EDT.
+    SwingVirtualList(final SwingMenu parent, final VirtualList list, final int index) {
+        this.parent = parent;
+        this.updates = PeerUpdates.forSwing(parent.visibility);
+
+        // look the same as the menu entries
+        _native.setFont(UIManager.getFont("MenuItem.font"));
+        _native.setBackground(UIManager.getColor("MenuItem.background"));
+        _native.setForeground(UIManager.getColor("MenuItem.foreground"));
+        _native.setSelectionBackground(UIManager.getColor("MenuItem.selectionBackground"));
+        _native.setSelectionForeground(UIManager.getColor("MenuItem.selectionForeground"));
+        _native.setCellRenderer(new DefaultListCellRenderer() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public
+            Component getListCellRendererComponent(final JList list, final Object value, final int index, final boolean isSelected,
+                                                   final boolean cellHasFocus) {
+                super.getListCellRendererComponent(list, value, index, isSelected, false);
+                setBorder(BorderFactory.createEmptyBorder(2, 4, 2, 4));
+                return this;
+            }
+        });
+
+        _native.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        _native.setVisibleRowCount(list.getVisibleRows());
+
+        // every row has this size, so the rows never have to be measured
+        _native.setPrototypeCellValue(list.getPrototypeRow());
+
+        MouseAdapter mouseAdapter = new MouseAdapter() {
+            @Override
+            public
+            void mouseMoved(final MouseEvent e) {
+                // highlight the row under the mouse, like menu entries do
+                int index = rowAt(e);
+                if (index >= 0) {
+                    _native.setSelectedIndex(index);
+                }
+                else {
+                    _native.clearSelection();
+                }
+            }
+
+            @Override
+            public
+            void mouseExited(final MouseEvent e) {
+                _native.clearSelection();
+            }
+
+            @Override
+            public
+            void mouseReleased(final MouseEvent e) {
+                final int index = rowAt(e);
+                if (index < 0) {
+                    return;
+                }
+
+                // close the menu, the same as clicking a menu entry
+                MenuSelectionManager.defaultManager().clearSelectedPath();
+
+                final VirtualList.Callback callback = list.getCallback();
+                if (callback != null) {
+                    CallbackExecutor.click(list, String.valueOf(_native.getModel().getElementAt(index)), new ActionListener() {
+                        @Override
+                        public
+                        void actionPerformed(final ActionEvent e) {
+                            callback.selected(list, index);
+                        }
+                    });
+                }
+            }
+        };
+        _native.addMouseListener(mouseAdapter);
+        _native.addMouseMotionListener(mouseAdapter);
+
+        scrollPane = new JScrollPane(_native, JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED, JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
+        scrollPane.setBorder(BorderFactory.createEmptyBorder());
+
+        parent.addNative(scrollPane, index);
+    }
+
+    private
+    int rowAt(final MouseEvent e) {
+        final int index = _native.locationToIndex(e.getPoint());
+
+        // locationToIndex returns the closest row, even when the mouse is below the last one
+        if (index >= 0 && _native.getCellBounds(index, index).contains(e.getPoint())) {
+            return index;
+        }
+
+        return -1;
+    }
+
+    @Override
+    public
+    void setRows(final VirtualList list) {
+        updates.update(PeerUpdates.TEXT, new Runnable() {
+            @Override
+            public
+            void run() {
+                _native.setModel(new RowsModel(list.getRows()));
+            }
+        });
+    }
+
+    @Override
+    public
+    void release() {
+        updates.cancel();
+    }
+
+    @Override
+    public
+    void remove() {
+        // deferred updates must not run after the entry is gone
+        updates.cancel();
+
+        SwingDispatch.invokeLater(new Runnable() {
+            @Override
+            public
+            void run() {
+                parent._native.remove(scrollPane);
+            }
+        });
+    }
+}
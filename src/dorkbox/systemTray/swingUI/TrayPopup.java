@@ -34,6 +34,7 @@ import javax.swing.event.PopupMenuEvent;
 import javax.swing.event.PopupMenuListener;
 
 import dorkbox.systemTray.SystemTray;
+import dorkbox.systemTray.util.PeerUpdates;
 import dorkbox.util.OS;
 import dorkbox.util.ScreenUtil;
 
@@ -52,9 +53,13 @@ class TrayPopup extends JPopupMenu {
     private volatile File iconFile;
     private volatile Runnable runnable;
 
+    // whether this menu is hidden. Only for the updates of the entries in this menu
+    private final PeerUpdates.MenuVisibility visibility;
+
     @SuppressWarnings("unchecked")
-    TrayPopup() {
+    TrayPopup(final PeerUpdates.MenuVisibility visibility) {
         super();
+        this.visibility = visibility;
         setFocusable(true);
 //        setBorder(new BorderUIResource.EmptyBorderUIResource(0, 0, 0, 0)); // borderUI resource border type will get changed!
         setBorder(new EmptyBorder(1, 1, 1, 1));
@@ -93,11 +98,16 @@ class TrayPopup extends JPopupMenu {
         hiddenDialog.pack();
         hiddenDialog.setBounds(0,0,0,0);
 
+        // we start hidden
+        visibility.onMenuHidden();
+
         addPopupMenuListener(new PopupMenuListener() {
             public void popupMenuWillBecomeVisible(PopupMenuEvent e) {
             }
 
             public void popupMenuWillBecomeInvisible(PopupMenuEvent e) {
+                visibility.onMenuHidden();
+
                 hiddenDialog.setVisible(false);
                 hiddenDialog.toBack();
 
@@ -141,6 +151,9 @@ class TrayPopup extends JPopupMenu {
     }
 
     void doShow(final Point point, int offset) {
+        // must be before we figure out the size, since entries might change
+        visibility.onMenuShowing();
+
         Dimension size = getPreferredSize();
         Rectangle bounds = ScreenUtil.getScreenBoundsAt(point);
 
@@ -27,13 +27,14 @@ import dorkbox.systemTray.MenuItem;
 import dorkbox.systemTray.SystemTray;
 import dorkbox.systemTray.Tray;
 import dorkbox.systemTray.jna.linux.AppIndicator;
+import dorkbox.systemTray.jna.linux.AppIndicatorFrames;
 import dorkbox.systemTray.jna.linux.AppIndicatorInstanceStruct;
-import dorkbox.systemTray.jna.linux.GEventCallback;
-import dorkbox.systemTray.jna.linux.GdkEventButton;
+import dorkbox.systemTray.jna.linux.GCallback;
+import dorkbox.systemTray.jna.linux.GSignal;
 import dorkbox.systemTray.jna.linux.Gobject;
 import dorkbox.systemTray.jna.linux.Gtk;
 import dorkbox.systemTray.util.ImageUtils;
-import dorkbox.util.SwingUtil;
+import dorkbox.systemTray.util.SwingDispatch;
 
 /**
  * Class for handling all system tray interactions.
@@ -90,9 +91,20 @@ class _AppIndicatorTray extends Tray implements SwingUI {
     // This is required if we have JavaFX or SWT shutdown hooks (to prevent us from shutting down twice...)
     private AtomicBoolean shuttingDown = new AtomicBoolean();
 
-    // necessary to prevent GC on these objects
-    @SuppressWarnings("FieldCanBeLocal")
-    private GEventCallback gtkCallback;
+    // the ID of our "about-to-show" signal connection. GSignal keeps the callback from being GC'd until it is disconnected
+    private long aboutToShowId = 0;
+
+    // there is only ever one of these, no matter how many times the menu is re-hooked
+    private final GCallback aboutToShowCallback = new GCallback() {
+        @Override
+        public
+        int callback(final Pointer instance, final Pointer data) {
+            Gtk.gtk_menu_shell_deactivate(dummyMenu);
+            SwingDispatch.invokeLater(popupRunnable);
+
+            return Gtk.TRUE;
+        }
+    };
 
 
     // necessary to provide a menu (which we draw over) so we get the "on open" event when the menu is opened via clicking
@@ -105,6 +117,30 @@ class _AppIndicatorTray extends Tray implements SwingUI {
     // has the name already been set for the indicator?
     private volatile boolean setName = false;
 
+    // frames from setImagePixels() are written to a ring of files (in RAM) instead of to the image cache
+    private final AppIndicatorFrames frames = new AppIndicatorFrames() {
+        @Override
+        protected
+        AppIndicatorInstanceStruct getIndicator() {
+            return appIndicator;
+        }
+
+        @Override
+        protected
+        void showIcon(final String iconName) {
+            AppIndicator.app_indicator_set_icon(appIndicator, iconName);
+
+            if (!isActive) {
+                isActive = true;
+
+                AppIndicator.app_indicator_set_status(appIndicator, AppIndicator.STATUS_ACTIVE);
+
+                // now we have to setup a way for us to catch the "activation" click on this menu. Must be after the menu is set
+                hookMenuOpen();
+            }
+        }
+    };
+
     // appindicators DO NOT support anything other than PLAIN gtk-menus (which we hack to support swing menus)
     //   they ALSO do not support tooltips, so we cater to the lowest common denominator
     // trayIcon.setToolTip("app name");
@@ -130,7 +166,7 @@ class _AppIndicatorTray extends Tray implements SwingUI {
 
         Gtk.waitForStartup();
 
-        SwingUtil.invokeLater(new Runnable() {
+        SwingDispatch.invokeLater(new Runnable() {
             @Override
             public
             void run() {
@@ -185,7 +221,7 @@ class _AppIndicatorTray extends Tray implements SwingUI {
 
 
                         // needs to be on EDT
-                        SwingUtil.invokeLater(new Runnable() {
+                        SwingDispatch.invokeLater(new Runnable() {
                             @Override
                             public
                             void run() {
@@ -222,6 +258,8 @@ class _AppIndicatorTray extends Tray implements SwingUI {
                                     AppIndicator.app_indicator_set_status(savedAppIndicator, AppIndicator.STATUS_PASSIVE);
                                     Pointer p = savedAppIndicator.getPointer();
                                     Gobject.g_object_unref(p);
+
+                                    frames.delete();
                                 }
                             });
 
@@ -246,7 +284,7 @@ class _AppIndicatorTray extends Tray implements SwingUI {
                         }
 
                         // Such ugly hacks to get AppIndicator support properly working. This is so horrible I am ashamed.
-                        Gtk.dispatchAndWait(new Runnable() {
+                        Gtk.dispatchInteractiveAndWait(new Runnable() {
                             @Override
                             public
                             void run() {
@@ -283,16 +321,9 @@ class _AppIndicatorTray extends Tray implements SwingUI {
         Gobject.g_object_get(appIndicator.getPointer(), "dbus-menu-server", menuServer, null);
         Gobject.g_object_get(menuServer.getValue(), "root-node", rootMenuItem, null);
 
-        gtkCallback = new GEventCallback() {
-            @Override
-            public
-            void callback(Pointer notUsed, final GdkEventButton event) {
-                Gtk.gtk_menu_shell_deactivate(dummyMenu);
-                SwingUtil.invokeLater(popupRunnable);
-            }
-        };
-
-        Gobject.g_signal_connect_object(rootMenuItem.getValue(), "about-to-show", gtkCallback, null, 0);
+        // the previous root menu item is gone (the dummy menu was re-created), so we no longer want to hear from it
+        GSignal.disconnect(aboutToShowId);
+        aboutToShowId = GSignal.connect(rootMenuItem.getValue(), "about-to-show", aboutToShowCallback);
     }
 
     private
@@ -322,6 +353,18 @@ class _AppIndicatorTray extends Tray implements SwingUI {
         }
     }
 
+    /**
+     * Shows the pixels from a small ring of files in a RAM-backed directory, so frames are not written to the image cache (on disk).
+     */
+    @Override
+    public
+    void setImagePixels(final int width, final int height, final int[] argb) {
+        if (!frames.show(width, height, argb)) {
+            // there is no RAM-backed directory, so it goes through the image cache instead
+            super.setImagePixels(width, height, argb);
+        }
+    }
+
     @Override
     public final
     boolean hasImage() {
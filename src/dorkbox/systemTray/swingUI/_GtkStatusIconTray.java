@@ -19,6 +19,7 @@ import java.awt.MouseInfo;
 import java.awt.Point;
 import java.io.File;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.swing.JPopupMenu;
 
@@ -28,10 +29,12 @@ import dorkbox.systemTray.MenuItem;
 import dorkbox.systemTray.SystemTray;
 import dorkbox.systemTray.Tray;
 import dorkbox.systemTray.jna.linux.GEventCallback;
+import dorkbox.systemTray.jna.linux.GSignal;
 import dorkbox.systemTray.jna.linux.GdkEventButton;
 import dorkbox.systemTray.jna.linux.Gobject;
 import dorkbox.systemTray.jna.linux.Gtk;
-import dorkbox.util.SwingUtil;
+import dorkbox.systemTray.jna.linux.PixbufCache;
+import dorkbox.systemTray.util.SwingDispatch;
 
 /**
  * Class for handling all system tray interactions via GTK.
@@ -47,9 +50,9 @@ public
 class _GtkStatusIconTray extends Tray implements SwingUI {
     private volatile Pointer trayIcon;
 
-    // have to save these in a field to prevent GC on the objects (since they go out-of-scope from java)
+    // the ID of our "button_press_event" signal connection. GSignal keeps the callback from being GC'd until it is disconnected
     // see: https://github.com/java-native-access/jna/blob/master/www/CallbacksAndClosures.md
-    private GEventCallback gtkCallback = null;
+    private volatile long buttonPressId = 0;
 
     private AtomicBoolean shuttingDown = new AtomicBoolean();
 
@@ -60,6 +63,9 @@ class _GtkStatusIconTray extends Tray implements SwingUI {
     private volatile File imageFile;
     private volatile Runnable popupRunnable;
 
+    // the most recent frame from setImagePixels(), that has not been shown yet
+    private final AtomicReference<Runnable> pendingFrame = new AtomicReference<Runnable>();
+
     // called on the EDT
     public
     _GtkStatusIconTray(final SystemTray systemTray) {
@@ -73,19 +79,18 @@ class _GtkStatusIconTray extends Tray implements SwingUI {
             void run() {
                 trayIcon = Gtk.gtk_status_icon_new();
 
-                gtkCallback = new GEventCallback() {
+                buttonPressId = GSignal.connect(trayIcon, "button_press_event", new GEventCallback() {
                     @Override
                     public
-                    void callback(Pointer notUsed, final GdkEventButton event) {
+                    void callback(Pointer notUsed, final Pointer event) {
                         // show the swing menu on the EDT
                         // BUTTON_PRESS only (any mouse click)
-                        if (event.type == 4) {
+                        if (GdkEventButton.type(event) == GdkEventButton.BUTTON_PRESS) {
                             // show the swing menu on the EDT
-                            SwingUtil.invokeLater(popupRunnable);
+                            SwingDispatch.invokeLater(popupRunnable);
                         }
                     }
-                };
-                Gobject.g_signal_connect_object(trayIcon, "button_press_event", gtkCallback, null, 0);
+                });
             }
         });
 
@@ -118,7 +123,7 @@ class _GtkStatusIconTray extends Tray implements SwingUI {
         });
 
         // we override various methods, because each tray implementation is SLIGHTLY different. This allows us customization.
-        SwingUtil.invokeLater(new Runnable() {
+        SwingDispatch.invokeLater(new Runnable() {
             @Override
             public
             void run() {
@@ -166,7 +171,7 @@ class _GtkStatusIconTray extends Tray implements SwingUI {
                         });
 
                         // needs to be on EDT
-                        SwingUtil.invokeLater(new Runnable() {
+                        SwingDispatch.invokeLater(new Runnable() {
                             @Override
                             public
                             void run() {
@@ -202,6 +207,7 @@ class _GtkStatusIconTray extends Tray implements SwingUI {
 
                                     // mark for GC
                                     trayIcon = null;
+                                    GSignal.disconnect(buttonPressId);
                                 }
                             });
 
@@ -236,6 +242,42 @@ class _GtkStatusIconTray extends Tray implements SwingUI {
         });
     }
 
+    /**
+     * Shows the pixels directly, without writing or reading any files. Only the most recent frame is shown, if they arrive faster than
+     * GTK can show them.
+     */
+    @Override
+    public
+    void setImagePixels(final int width, final int height, final int[] argb) {
+        final Runnable frame = new Runnable() {
+            @Override
+            public
+            void run() {
+                Pointer pixbuf = PixbufCache.fromPixels(width, height, argb);
+                Gtk.gtk_status_icon_set_from_pixbuf(trayIcon, pixbuf);
+                Gobject.g_object_unref(pixbuf); // the status icon keeps its own reference
+
+                if (!isActive) {
+                    isActive = true;
+                    Gtk.gtk_status_icon_set_visible(trayIcon, true);
+                }
+            }
+        };
+
+        if (pendingFrame.getAndSet(frame) == null) {
+            Gtk.dispatch(new Runnable() {
+                @Override
+                public
+                void run() {
+                    Runnable frame = pendingFrame.getAndSet(null);
+                    if (frame != null && trayIcon != null) {
+                        frame.run();
+                    }
+                }
+            });
+        }
+    }
+
     @Override
     public
     boolean hasImage() {
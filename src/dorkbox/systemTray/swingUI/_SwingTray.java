@@ -28,7 +28,7 @@ import javax.swing.JPopupMenu;
 
 import dorkbox.systemTray.MenuItem;
 import dorkbox.systemTray.Tray;
-import dorkbox.util.SwingUtil;
+import dorkbox.systemTray.util.SwingDispatch;
 
 /**
  * Class for handling all system tray interaction, via Swing.
@@ -65,7 +65,7 @@ class _SwingTray extends Tray implements SwingUI {
             @Override
             public
             void setEnabled(final MenuItem menuItem) {
-                SwingUtil.invokeLater(new Runnable() {
+                SwingDispatch.invokeLater(new Runnable() {
                     @Override
                     public
                     void run() {
@@ -95,7 +95,7 @@ class _SwingTray extends Tray implements SwingUI {
                     return;
                 }
 
-                SwingUtil.invokeLater(new Runnable() {
+                SwingDispatch.invokeLater(new Runnable() {
                     @Override
                     public
                     void run() {
@@ -153,7 +153,7 @@ class _SwingTray extends Tray implements SwingUI {
             @Override
             public
             void remove() {
-                SwingUtil.invokeLater(new Runnable() {
+                SwingDispatch.invokeLater(new Runnable() {
                     @Override
                     public
                     void run() {
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2016 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.util;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import dorkbox.systemTray.Entry;
+import dorkbox.systemTray.SystemTray;
+import dorkbox.util.Property;
+
+/**
+ * Runs menu entry callbacks (the user's ActionListeners), either directly on the event thread that received the click, or (when
+ * {@link #ENABLE} is true) on a separate executor so that a slow callback cannot freeze the tray.
+ * <p>
+ * Callbacks that run on the executor are NOT on the event thread, so any changes they make to the menu are dispatched to the event
+ * thread like changes made from any other thread.
+ * <p>
+ * The duration of every callback is recorded in {@link DispatchMetrics#CALLBACK}, and per entry in {@link #getTimings(Entry)}.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final
+class CallbackExecutor {
+
+    @Property
+    /** Runs menu entry callbacks on a separate executor, instead of on the event thread (that received the click). */
+    public static volatile boolean ENABLE = false;
+
+    @Property
+    /** How many threads the default executor may use, when virtual threads are not available. */
+    public static volatile int MAX_THREADS = 4;
+
+    @Property
+    /**
+     * How many callbacks may be waiting or running on the executor at the same time. Clicks beyond this are dropped (and logged), instead
+     * of piling up behind callbacks that are stuck. 0 is unlimited.
+     */
+    public static volatile int MAX_PENDING = 64;
+
+    /**
+     * How long the callbacks of a single menu entry have taken.
+     */
+    public static final
+    class Timings {
+        private final AtomicLong count = new AtomicLong(0);
+        private final AtomicLong totalNanos = new AtomicLong(0);
+        private final AtomicLong maxNanos = new AtomicLong(0);
+        private final AtomicLong rejectedCount = new AtomicLong(0);
+
+        private
+        Timings() {
+        }
+
+        private
+        void record(final long nanos) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+        }
+
+        /**
+         * @return how many times the callback has run
+         */
+        public
+        long getCount() {
+            return count.get();
+        }
+
+        /**
+         * @return the total time spent running the callback, in nanoseconds
+         */
+        public
+        long getTotalNanos() {
+            return totalNanos.get();
+        }
+
+        /**
+         * @return the longest time the callback has taken to run, in nanoseconds
+         */
+        public
+        long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        /**
+         * @return how many clicks were dropped because too many callbacks were already pending
+         */
+        public
+        long getRejectedCount() {
+            return rejectedCount.get();
+        }
+
+        @Override
+        public
+        String toString() {
+            return count.get() + " calls, " + TimeUnit.NANOSECONDS.toMillis(totalNanos.get()) + " ms total, " +
+                   TimeUnit.NANOSECONDS.toMillis(maxNanos.get()) + " ms max, " + rejectedCount.get() + " rejected";
+        }
+    }
+
+    private static volatile Executor executor = null;
+    private static Executor defaultExecutor = null;
+
+    private static final AtomicInteger pending = new AtomicInteger(0);
+
+    // weak, so that removed entries do not stay around forever
+    private static final Map<Entry, Timings> timings = new WeakHashMap<Entry, Timings>();
+
+    private
+    CallbackExecutor() {
+    }
+
+    /**
+     * Sets the executor used to run menu entry callbacks when {@link #ENABLE} is true. Null restores the default executor, which uses
+     * virtual threads when they are available (Java 21+), otherwise a pool of at most {@link #MAX_THREADS} daemon threads.
+     */
+    public static
+    void setExecutor(final Executor executor) {
+        CallbackExecutor.executor = executor;
+    }
+
+    /**
+     * @return the executor used to run menu entry callbacks when {@link #ENABLE} is true.
+     */
+    public static
+    Executor getExecutor() {
+        Executor e = executor;
+        if (e != null) {
+            return e;
+        }
+
+        synchronized (CallbackExecutor.class) {
+            if (defaultExecutor == null) {
+                defaultExecutor = createDefaultExecutor();
+            }
+
+            return defaultExecutor;
+        }
+    }
+
+    private static
+    Executor createDefaultExecutor() {
+        try {
+            // Java 21+. This is via reflection, because we have to be compatible with older versions of java
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (Exception ignored) {
+        }
+
+        final AtomicInteger threadCount = new AtomicInteger(0);
+        final int maxThreads = Math.max(1, MAX_THREADS);
+
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxThreads, maxThreads, 60L, TimeUnit.SECONDS,
+                                                         new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public
+            Thread newThread(final Runnable r) {
+                Thread thread = new Thread(r, "SystemTray Callback-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        pool.allowCoreThreadTimeOut(true);
+
+        return pool;
+    }
+
+    /**
+     * @return how long the callbacks of the specified entry have taken, or null if its callback has never run.
+     */
+    public static
+    Timings getTimings(final Entry entry) {
+        synchronized (timings) {
+            return timings.get(entry);
+        }
+    }
+
+    private static
+    Timings timingsFor(final Entry entry) {
+        synchronized (timings) {
+            Timings t = timings.get(entry);
+            if (t == null) {
+                t = new Timings();
+                timings.put(entry, t);
+            }
+            return t;
+        }
+    }
+
+    /**
+     * Runs the callback for a menu entry click. This is called on the event thread that received the click, and the callback will run
+     * either directly or on the executor (when {@link #ENABLE} is true). Exceptions thrown by the callback are logged.
+     *
+     * @param entry the entry that was clicked. This is the source of the ActionEvent passed to the callback
+     * @param entryName the name of the entry, used when logging
+     */
+    public static
+    void click(final Entry entry, final String entryName, final ActionListener callback) {
+        final Timings entryTimings = timingsFor(entry);
+
+        final Runnable runnable = new Runnable() {
+            @Override
+            public
+            void run() {
+                final long startTime = System.nanoTime();
+
+                try {
+                    callback.actionPerformed(new ActionEvent(entry, ActionEvent.ACTION_PERFORMED, ""));
+                } catch (Throwable throwable) {
+                    SystemTray.logger.error("Error calling menu entry {} click event.", entryName, throwable);
+                } finally {
+                    entryTimings.record(System.nanoTime() - startTime);
+                }
+            }
+
+            @Override
+            public
+            String toString() {
+                return entryName;
+            }
+        };
+
+        if (!ENABLE) {
+            DispatchMetrics.CALLBACK.wrap(runnable).run();
+            return;
+        }
+
+        final int maxPending = MAX_PENDING;
+        if (pending.incrementAndGet() > maxPending && maxPending > 0) {
+            pending.decrementAndGet();
+            entryTimings.rejectedCount.incrementAndGet();
+            SystemTray.logger.warn("Too many menu entry callbacks are pending. Ignoring the menu entry {} click event.", entryName);
+            return;
+        }
+
+        final Runnable wrapped = DispatchMetrics.CALLBACK.wrap(runnable);
+
+        try {
+            getExecutor().execute(new Runnable() {
+                @Override
+                public
+                void run() {
+                    try {
+                        wrapped.run();
+                    } finally {
+                        pending.decrementAndGet();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.decrementAndGet();
+            entryTimings.rejectedCount.incrementAndGet();
+            SystemTray.logger.error("Unable to run menu entry {} click event.", entryName, e);
+        }
+    }
+}
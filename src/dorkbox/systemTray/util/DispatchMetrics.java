@@ -0,0 +1,271 @@
+/*
+ * Copyright 2016 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import dorkbox.systemTray.SystemTray;
+import dorkbox.util.Property;
+
+/**
+ * Timing information for work that is dispatched to the GTK or Swing event threads, and for menu entry callbacks.
+ * <p>
+ * For every dispatched task we record how long it waited in the queue before it ran, how long it took to run, and how many tasks were
+ * waiting at the same time. This makes it possible to tell if a sluggish tray is caused by our callbacks, by GTK, or by the EDT.
+ * <p>
+ * This is disabled by default, and when disabled the runnables are passed through as-is (there is no extra allocation or timing).
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final
+class DispatchMetrics {
+
+    @Property
+    /** Enables recording timing information for every task dispatched to the GTK or Swing event threads. */
+    public static volatile boolean ENABLE = false;
+
+    @Property
+    /** Tasks that take longer than this (queue wait + execution) are logged as a warning. 0 disables logging slow tasks. */
+    public static volatile long SLOW_TASK_MILLIS = 100L;
+
+    /**
+     * Notified (on the thread that ran the task) for every task that is recorded.
+     * <p>
+     * This can be used to forward this information somewhere else, for example to commit a JFR event.
+     */
+    public
+    interface Listener {
+        void onTask(DispatchMetrics metrics, long queueWaitNanos, long executionNanos);
+    }
+
+    /**
+     * Bucket 'i' counts durations less than 2^i microseconds (and at least 2^(i-1) microseconds). The last bucket counts everything else.
+     */
+    public static final int BUCKETS = 26;
+
+    /** Work that is dispatched to the GTK event loop. */
+    public static final DispatchMetrics GTK = new DispatchMetrics("GTK");
+
+    /** Work that is dispatched to the Swing EDT. */
+    public static final DispatchMetrics SWING = new DispatchMetrics("Swing");
+
+    /** Menu entry callbacks (the time from the click until the callback runs, and how long the callback takes) */
+    public static final DispatchMetrics CALLBACK = new DispatchMetrics("Callback");
+
+    private static volatile Listener listener = null;
+
+    private final String name;
+
+    private final AtomicLongArray queueWait = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray execution = new AtomicLongArray(BUCKETS);
+
+    private final AtomicInteger queueDepth = new AtomicInteger(0);
+    private final AtomicInteger maxQueueDepth = new AtomicInteger(0);
+
+    private final AtomicLong taskCount = new AtomicLong(0);
+    private final AtomicLong slowTaskCount = new AtomicLong(0);
+
+    private
+    DispatchMetrics(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Sets the listener that is notified for every recorded task, null to remove it.
+     */
+    public static
+    void setListener(final Listener listener) {
+        DispatchMetrics.listener = listener;
+    }
+
+    /**
+     * @return the upper bound (exclusive) of the specified histogram bucket, in microseconds. The last bucket has no upper bound.
+     */
+    public static
+    long getBucketLimitMicros(final int bucket) {
+        if (bucket >= BUCKETS - 1) {
+            return Long.MAX_VALUE;
+        }
+
+        return 1L << bucket;
+    }
+
+    private static
+    int bucket(final long nanos) {
+        final long micros = nanos / 1000L;
+
+        // number of bits needed to represent the value, so 0 -> 0, 1 -> 1, 2-3 -> 2, 4-7 -> 3, etc
+        final int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        if (bucket >= BUCKETS) {
+            return BUCKETS - 1;
+        }
+
+        return bucket;
+    }
+
+    /**
+     * Wraps the runnable so that it is recorded when it runs. Must be called when the runnable is queued.
+     *
+     * @return the same runnable if metrics are disabled.
+     */
+    public
+    Runnable wrap(final Runnable runnable) {
+        if (!ENABLE) {
+            return runnable;
+        }
+
+        final long queuedTime = System.nanoTime();
+
+        final int depth = queueDepth.incrementAndGet();
+        int max = maxQueueDepth.get();
+        while (depth > max && !maxQueueDepth.compareAndSet(max, depth)) {
+            max = maxQueueDepth.get();
+        }
+
+        return new Runnable() {
+            @Override
+            public
+            void run() {
+                queueDepth.decrementAndGet();
+                final long startTime = System.nanoTime();
+
+                try {
+                    runnable.run();
+                } finally {
+                    final long endTime = System.nanoTime();
+                    record(runnable, startTime - queuedTime, endTime - startTime);
+                }
+            }
+        };
+    }
+
+    /**
+     * Records the timing of a task that was not queued via {@link #wrap(Runnable)}
+     */
+    public
+    void record(final Object task, final long queueWaitNanos, final long executionNanos) {
+        queueWait.incrementAndGet(bucket(queueWaitNanos));
+        execution.incrementAndGet(bucket(executionNanos));
+        taskCount.incrementAndGet();
+
+        final long slowMillis = SLOW_TASK_MILLIS;
+        if (slowMillis > 0 && TimeUnit.NANOSECONDS.toMillis(queueWaitNanos + executionNanos) >= slowMillis) {
+            slowTaskCount.incrementAndGet();
+            SystemTray.logger.warn("Slow {} task '{}'. Waited {} ms, ran for {} ms.", name, task,
+                                   TimeUnit.NANOSECONDS.toMillis(queueWaitNanos),
+                                   TimeUnit.NANOSECONDS.toMillis(executionNanos));
+        }
+
+        final Listener l = listener;
+        if (l != null) {
+            try {
+                l.onTask(this, queueWaitNanos, executionNanos);
+            } catch (Throwable e) {
+                SystemTray.logger.error("Error notifying the dispatch metrics listener.", e);
+            }
+        }
+    }
+
+    /**
+     * @return the name of the event thread these metrics are for
+     */
+    public
+    String getName() {
+        return name;
+    }
+
+    /**
+     * @return a copy of the histogram (see {@link #getBucketLimitMicros(int)}) of how long tasks waited before they ran
+     */
+    public
+    long[] getQueueWaitHistogram() {
+        return copy(queueWait);
+    }
+
+    /**
+     * @return a copy of the histogram (see {@link #getBucketLimitMicros(int)}) of how long tasks took to run
+     */
+    public
+    long[] getExecutionHistogram() {
+        return copy(execution);
+    }
+
+    /**
+     * @return how many tasks are currently waiting to run
+     */
+    public
+    int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * @return the most tasks that were waiting to run at the same time
+     */
+    public
+    int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    /**
+     * @return how many tasks have been recorded
+     */
+    public
+    long getTaskCount() {
+        return taskCount.get();
+    }
+
+    /**
+     * @return how many tasks were slower than {@link #SLOW_TASK_MILLIS}
+     */
+    public
+    long getSlowTaskCount() {
+        return slowTaskCount.get();
+    }
+
+    /**
+     * Clears all recorded information (except the current queue depth)
+     */
+    public
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            queueWait.set(i, 0);
+            execution.set(i, 0);
+        }
+
+        maxQueueDepth.set(queueDepth.get());
+        taskCount.set(0);
+        slowTaskCount.set(0);
+    }
+
+    private static
+    long[] copy(final AtomicLongArray array) {
+        final long[] copy = new long[array.length()];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = array.get(i);
+        }
+
+        return copy;
+    }
+
+    @Override
+    public
+    String toString() {
+        return name + " dispatch: " + taskCount.get() + " tasks, " + slowTaskCount.get() + " slow, queue depth " + queueDepth.get() +
+               " (max " + maxQueueDepth.get() + ")";
+    }
+}
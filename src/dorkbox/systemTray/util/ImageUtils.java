@@ -427,6 +427,32 @@ class ImageUtils {
         }
     }
 
+    /**
+     * Scales the image to the specified width (keeping the aspect ratio), the same as every other resize here, and encodes it as a PNG.
+     * This does not use the cache (or anything else that is shared), so it can run on any thread, and several images can be resized in
+     * parallel. A square image then already has the correct size, so {@link #resizeAndCache(int, InputStream)} only has to cache it.
+     */
+    public static
+    byte[] resizeToPng(final int size, final BufferedImage image) throws IOException {
+        final BufferedImage resized;
+        if (image.getWidth() == size) {
+            resized = image;
+        }
+        else {
+            // resize the image, keep aspect
+            Image scaled = image.getScaledInstance(size, -1, Image.SCALE_SMOOTH);
+
+            // waits for the scaled image to finish loading
+            scaled = new ImageIcon(scaled).getImage();
+
+            resized = getBufferedImage(scaled);
+        }
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ImageIO.write(resized, "png", os);
+        return os.toByteArray();
+    }
+
     @SuppressWarnings("Duplicates")
     public static synchronized
     File resizeAndCache(final int size, final ImageInputStream imageStream) {
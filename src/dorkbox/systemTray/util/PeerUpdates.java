@@ -0,0 +1,253 @@
+/*
+ * Copyright 2016 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import dorkbox.systemTray.jna.linux.Gtk;
+import dorkbox.util.Property;
+
+/**
+ * Coalesces the property updates (text, image, enabled, etc) of a single peer.
+ * <p>
+ * Every property has a "dirty" slot that holds its most recent update. The first update schedules ONE flush on the event thread, and
+ * every update made before that flush runs just replaces what is in the slot. The flush then runs each changed property once, so
+ * binding an entry (or calling setText in a loop) costs a single dispatch instead of one per call.
+ * <p>
+ * An update made on the event thread only runs immediately when it schedules a new flush, and the flush is dispatched directly (which
+ * {@link Gtk#dispatch(Runnable)} and {@link SwingDispatch#invokeLater(Runnable)} do on their own event thread). It does NOT run immediately
+ * when a flush is already scheduled (it runs with that flush), while the menu is hidden (see below), or for background updates (see
+ * {@link #forGtkBackground(MenuVisibility)}), which are always queued.
+ * <p>
+ * When {@link #DEFER_WHILE_HIDDEN} is enabled, and the tray says that its menu is hidden, the flush waits until the menu is about to
+ * show. Nobody can see the changes before then anyways. This is tracked per tray (see {@link MenuVisibility}), so hiding one tray's menu
+ * does not hold back the updates of another tray.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public abstract
+class PeerUpdates {
+    @Property
+    /**
+     * Defers property updates while the menu is hidden, and applies them when the menu is about to show. This is only possible for the
+     * trays that can tell when their menu is about to show (Swing menus, and native GtkStatusIcon menus).
+     */
+    public static volatile boolean DEFER_WHILE_HIDDEN = false;
+
+    public static final int IMAGE = 0;
+    public static final int ENABLED = 1;
+    public static final int TEXT = 2;
+    public static final int SHORTCUT = 3;
+    public static final int CHECKED = 4;
+    public static final int TOOLTIP = 5;
+
+    private static final int PROPERTIES = 6;
+
+    private static final AtomicLong updateCount = new AtomicLong(0);
+    private static final AtomicLong savedCount = new AtomicLong(0);
+
+    /**
+     * Whether the menu of ONE tray is hidden, and the updates that are waiting for it to show. Every tray has its own, which is shared by
+     * all of the peers in its menu.
+     */
+    public static final
+    class MenuVisibility {
+        // only ever true for trays that tell us when their menu is hidden/about to show. Access is synchronized on 'deferred'
+        private volatile boolean hidden = false;
+        private final Set<PeerUpdates> deferred = new LinkedHashSet<PeerUpdates>();
+
+        /**
+         * Called by the tray when its menu is hidden. Until the menu is about to show again, updates are deferred (if enabled).
+         */
+        public
+        void onMenuHidden() {
+            if (DEFER_WHILE_HIDDEN) {
+                synchronized (deferred) {
+                    hidden = true;
+                }
+            }
+        }
+
+        /**
+         * Called by the tray (on the event thread) when its menu is about to show. Applies all of the updates that were deferred while
+         * it was hidden.
+         */
+        public
+        void onMenuShowing() {
+            if (!hidden) {
+                return;
+            }
+
+            List<PeerUpdates> copy;
+            synchronized (deferred) {
+                hidden = false;
+
+                copy = new ArrayList<PeerUpdates>(deferred);
+                deferred.clear();
+            }
+
+            // we are on the event thread, so these run immediately
+            for (int i = 0, size = copy.size(); i < size; i++) {
+                copy.get(i).schedule();
+            }
+        }
+    }
+
+    private final MenuVisibility visibility;
+
+    private final AtomicReferenceArray<Runnable> dirty = new AtomicReferenceArray<Runnable>(PROPERTIES);
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    private final Runnable flush = new Runnable() {
+        @Override
+        public
+        void run() {
+            // anything updated from now on needs another flush
+            scheduled.set(false);
+
+            for (int i = 0; i < PROPERTIES; i++) {
+                Runnable update = dirty.getAndSet(i, null);
+                if (update != null) {
+                    update.run();
+                }
+            }
+        }
+    };
+
+    /**
+     * @param visibility the visibility of the menu of the tray that the peer is in
+     *
+     * @return property updates for a GTK peer, dispatched with {@link Gtk#dispatch(Runnable)}
+     */
+    public static
+    PeerUpdates forGtk(final MenuVisibility visibility) {
+        return new PeerUpdates(visibility) {
+            @Override
+            protected
+            void dispatch(final Runnable runnable) {
+                Gtk.dispatch(runnable);
+            }
+        };
+    }
+
+    /**
+     * @return property updates for a GTK peer, dispatched with {@link Gtk#dispatchBackground(Runnable)}. These are NOT in order with the
+     * other updates of the peer (see {@link Gtk#dispatchBackground(Runnable)} for what that requires)
+     */
+    public static
+    PeerUpdates forGtkBackground(final MenuVisibility visibility) {
+        return new PeerUpdates(visibility) {
+            @Override
+            protected
+            void dispatch(final Runnable runnable) {
+                Gtk.dispatchBackground(runnable);
+            }
+        };
+    }
+
+    /**
+     * @param visibility the visibility of the menu of the tray that the peer is in
+     *
+     * @return property updates for a Swing or AWT peer, dispatched with {@link SwingDispatch#invokeLater(Runnable)}
+     */
+    public static
+    PeerUpdates forSwing(final MenuVisibility visibility) {
+        return new PeerUpdates(visibility) {
+            @Override
+            protected
+            void dispatch(final Runnable runnable) {
+                SwingDispatch.invokeLater(runnable);
+            }
+        };
+    }
+
+    /**
+     * @return how many property updates have been requested (for all peers)
+     */
+    public static
+    long getUpdateCount() {
+        return updateCount.get();
+    }
+
+    /**
+     * @return how many property updates were replaced by a later update of the same property, before they ran (for all peers)
+     */
+    public static
+    long getSavedCount() {
+        return savedCount.get();
+    }
+
+    PeerUpdates(final MenuVisibility visibility) {
+        this.visibility = visibility;
+    }
+
+    protected abstract
+    void dispatch(Runnable runnable);
+
+    private
+    void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            dispatch(flush);
+        }
+    }
+
+    /**
+     * Drops all updates that have not run yet. Every peer calls this when it is removed, because the native widget might no longer exist
+     * (and so that it is not kept around while the menu is hidden).
+     */
+    public final
+    void cancel() {
+        for (int i = 0; i < PROPERTIES; i++) {
+            dirty.set(i, null);
+        }
+
+        synchronized (visibility.deferred) {
+            visibility.deferred.remove(this);
+        }
+    }
+
+    /**
+     * Sets the update for the specified property, replacing any update for it that has not run yet.
+     *
+     * @param property one of the property constants, ie: {@link #TEXT}
+     * @param update what to run on the event thread. It must not depend on earlier updates of the same property
+     */
+    public final
+    void update(final int property, final Runnable update) {
+        updateCount.incrementAndGet();
+
+        if (dirty.getAndSet(property, update) != null) {
+            savedCount.incrementAndGet();
+        }
+
+        if (visibility.hidden) {
+            synchronized (visibility.deferred) {
+                if (visibility.hidden) {
+                    // nobody can see it, so it waits until the menu is about to show
+                    visibility.deferred.add(this);
+                    return;
+                }
+            }
+        }
+
+        schedule();
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The menus that have changed since they were last shown. Showing a native menu (ie: gtk_widget_show_all) walks everything in it, so each
+ * changed menu is shown ONCE, after all of the updates that are already queued have run, no matter how many of its entries changed.
+ * <p>
+ * This is NOT thread safe. It is only used on the event thread, which is where the menus are changed.
+ *
+ * @param <T> the native menu
+ */
+public abstract
+class PendingShows<T> {
+    private final Set<T> pending = new LinkedHashSet<T>();
+
+    private final Runnable showPending = new Runnable() {
+        @Override
+        public
+        void run() {
+            showNow();
+        }
+    };
+
+    /**
+     * Queues the runnable to run after all of the updates that are already queued.
+     */
+    protected abstract
+    void queue(Runnable showPending);
+
+    /**
+     * Shows the menu (and everything in it).
+     */
+    protected abstract
+    void show(T menu);
+
+    /**
+     * Shows the menu once, after all of the updates that are already queued have run.
+     */
+    public
+    void showLater(final T menu) {
+        if (pending.isEmpty()) {
+            queue(showPending);
+        }
+
+        pending.add(menu);
+    }
+
+    /**
+     * Shows the menus that are waiting for {@link #showLater(Object)} right away (ie: just before a menu pops up).
+     */
+    public
+    void showNow() {
+        final List<T> menus = new ArrayList<T>(pending);
+        pending.clear();
+
+        for (int i = 0, menusSize = menus.size(); i < menusSize; i++) {
+            show(menus.get(i));
+        }
+    }
+}
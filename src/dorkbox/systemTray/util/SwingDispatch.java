@@ -0,0 +1,41 @@
+/*
+ * Copyright 2016 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.util;
+
+import dorkbox.util.SwingUtil;
+
+/**
+ * All menu/tray work for the Swing (and AWT) peers goes through here, so that it can be measured via {@link DispatchMetrics}.
+ */
+public
+class SwingDispatch {
+
+    /**
+     * Same as {@link SwingUtil#invokeLater(Runnable)}, but recorded in {@link DispatchMetrics#SWING}
+     */
+    public static
+    void invokeLater(final Runnable runnable) {
+        SwingUtil.invokeLater(DispatchMetrics.SWING.wrap(runnable));
+    }
+
+    /**
+     * Same as {@link SwingUtil#invokeAndWaitQuietly(Runnable)}, but recorded in {@link DispatchMetrics#SWING}
+     */
+    public static
+    void invokeAndWait(final Runnable runnable) {
+        SwingUtil.invokeAndWaitQuietly(DispatchMetrics.SWING.wrap(runnable));
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2016 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dorkbox;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import dorkbox.systemTray.Entry;
+import dorkbox.systemTray.EntrySpec;
+import dorkbox.systemTray.Menu;
+import dorkbox.systemTray.MenuItem;
+
+/**
+ * Checks Menu.find(), for paths through sub-menus, for keys that change, and while entries are added and removed in between lookups (which
+ * is how reconcile and sections use it).
+ * <p>
+ * This does not need a system tray. The menus are never added to one.
+ */
+public
+class TestFind {
+    private static final int ENTRIES = 20000;
+
+    public static
+    void main(String[] args) {
+        paths();
+        keyChanges();
+        invalidKeys();
+        interleaved();
+
+        System.out.println("All find() checks passed.");
+    }
+
+    private static
+    void paths() {
+        final Menu root = new Menu();
+        final Menu hosts = keyed(new Menu("Hosts"), "hosts");
+        final Menu web = keyed(new Menu("web-01"), "web-01");
+        final MenuItem restart = keyed(new MenuItem("Restart"), "restart");
+        final MenuItem quit = keyed(new MenuItem("Quit"), "quit");
+
+        root.add(hosts);
+        hosts.add(web);
+        web.add(restart);
+        root.add(quit);
+
+        check(root.find("quit") == quit, "top level entry");
+        check(root.find("hosts") == hosts, "sub-menu");
+        check(root.find("hosts/web-01/restart") == restart, "path through sub-menus");
+        check(hosts.find("web-01/restart") == restart, "path from a sub-menu");
+        check(root.find("restart") == null, "only the entries of the menu itself");
+        check(root.find("hosts/db-01/restart") == null, "missing sub-menu");
+        check(root.find("quit/restart") == null, "path through an entry that is not a menu");
+    }
+
+    private static
+    void keyChanges() {
+        final Menu root = new Menu();
+        final Menu hosts = keyed(new Menu("Hosts"), "hosts");
+        final MenuItem item = keyed(new MenuItem("Item"), "before");
+
+        root.add(hosts);
+        hosts.add(item);
+
+        // looked up once, so the key index exists before the key changes
+        check(root.find("hosts/before") == item, "key before the change");
+
+        item.setKey("after");
+        check(root.find("hosts/after") == item, "changed key");
+        check(root.find("hosts/before") == null, "old key after the change");
+
+        item.setKey(null);
+        check(root.find("hosts/after") == null, "removed key");
+
+        // a key changed in between adds (the key index is carried forward, but this must still be noticed)
+        final MenuItem other = keyed(new MenuItem("Other"), "other");
+        hosts.add(other);
+        check(hosts.find("other") == other, "added entry");
+
+        other.setKey("renamed");
+        hosts.add(new MenuItem("Unkeyed"));
+        check(hosts.find("renamed") == other, "renamed, then another entry added");
+        check(hosts.find("other") == null, "old key, then another entry added");
+
+        hosts.remove(other);
+        check(hosts.find("renamed") == null, "removed entry");
+    }
+
+    private static
+    void invalidKeys() {
+        try {
+            new MenuItem("Item").setKey("a/b");
+            throw new RuntimeException("setKey() accepted '/'");
+        } catch (IllegalArgumentException ignored) {
+        }
+
+        try {
+            EntrySpec.item("a/b", "Item");
+            throw new RuntimeException("EntrySpec accepted '/'");
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    private static
+    void interleaved() {
+        final Menu menu = new Menu();
+        final List<MenuItem> items = new ArrayList<MenuItem>(ENTRIES);
+
+        final long start = System.nanoTime();
+
+        // every add is followed by a lookup
+        for (int i = 0; i < ENTRIES; i++) {
+            final MenuItem item = keyed(new MenuItem("Item " + i), "item-" + i);
+            items.add(item);
+
+            menu.add(item);
+            check(menu.find("item-" + i) == item, "find after add " + i);
+        }
+
+        // every remove is followed by lookups of the removed entry, and of an entry that stays
+        for (int i = 0; i < ENTRIES; i += 2) {
+            menu.remove(items.get(i));
+
+            check(menu.find("item-" + i) == null, "find after remove " + i);
+            check(menu.find("item-" + (i + 1)) == items.get(i + 1), "find of the next entry after remove " + i);
+        }
+
+        // the same entry added again, at the start
+        menu.add(items.get(0), 0);
+        check(menu.find("item-0") == items.get(0), "find after adding a removed entry again");
+
+        for (int i = 0; i < ENTRIES; i++) {
+            final Entry expected = i == 0 || i % 2 == 1 ? items.get(i) : null;
+            check(menu.find("item-" + i) == expected, "find at the end " + i);
+        }
+
+        final long millis = (System.nanoTime() - start) / 1000000L;
+        System.out.println(ENTRIES + " adds and " + ENTRIES / 2 + " removes, each followed by find(): " + millis + " ms");
+    }
+
+    private static
+    <T extends Entry> T keyed(final T entry, final String key) {
+        entry.setKey(key);
+        return entry;
+    }
+
+    private static
+    void check(final boolean condition, final String what) {
+        if (!condition) {
+            throw new RuntimeException("Failed: " + what);
+        }
+    }
+}
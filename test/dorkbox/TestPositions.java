@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dorkbox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import dorkbox.systemTray.Entry;
+import dorkbox.systemTray.Menu;
+import dorkbox.systemTray.MenuItem;
+
+/**
+ * Checks Menu.indexOf() against a plain list, while entries are added and removed at random positions in between lookups (the positions
+ * are carried forward from one change to the next, instead of being recalculated). This includes removing an entry and adding the same
+ * entry again.
+ * <p>
+ * This does not need a system tray. The menu is never added to one.
+ */
+public
+class TestPositions {
+    private static final int CHANGES = 20000;
+
+    public static
+    void main(String[] args) {
+        final Random random = new Random(42);
+
+        final Menu menu = new Menu();
+        final List<Entry> expected = new ArrayList<Entry>();
+
+        // entries that were removed, so they can be added again
+        final List<Entry> removed = new ArrayList<Entry>();
+        int next = 0;
+
+        for (int change = 0; change < CHANGES; change++) {
+            final int action = random.nextInt(10);
+
+            if (action < 5 || expected.isEmpty()) {
+                // add a new entry, or one that was removed before
+                final Entry entry;
+                if (!removed.isEmpty() && random.nextBoolean()) {
+                    entry = removed.remove(random.nextInt(removed.size()));
+                }
+                else {
+                    entry = new MenuItem("Item " + next++);
+                }
+
+                final int index = random.nextInt(expected.size() + 1);
+                expected.add(index, entry);
+                menu.add(entry, index);
+            }
+            else if (action < 9) {
+                final Entry entry = expected.remove(random.nextInt(expected.size()));
+                removed.add(entry);
+                menu.remove(entry);
+            }
+            else {
+                // removed, and added again right away somewhere else
+                final Entry entry = expected.remove(random.nextInt(expected.size()));
+                menu.remove(entry);
+
+                final int index = random.nextInt(expected.size() + 1);
+                expected.add(index, entry);
+                menu.add(entry, index);
+            }
+
+            // a few lookups after every change, so the positions are used (and carried forward) all the time
+            for (int i = 0; i < 3 && !expected.isEmpty(); i++) {
+                final int index = random.nextInt(expected.size());
+                check(menu.indexOf(expected.get(index)) == index, "position after change " + change);
+            }
+
+            if (!removed.isEmpty()) {
+                check(menu.indexOf(removed.get(random.nextInt(removed.size()))) == -1, "removed entry after change " + change);
+            }
+
+            if (change % 1000 == 0) {
+                check(menu.getEntries().equals(expected), "entries after change " + change);
+
+                for (int i = 0, size = expected.size(); i < size; i++) {
+                    check(menu.indexOf(expected.get(i)) == i, "every position after change " + change);
+                }
+            }
+        }
+
+        check(menu.getEntries().equals(expected), "entries at the end");
+        System.out.println("All position checks passed, for " + CHANGES + " changes (" + expected.size() + " entries at the end).");
+    }
+
+    private static
+    void check(final boolean condition, final String what) {
+        if (!condition) {
+            throw new RuntimeException("Failed: " + what);
+        }
+    }
+}
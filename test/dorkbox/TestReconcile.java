@@ -0,0 +1,296 @@
+/*
+ * Copyright 2016 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dorkbox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import dorkbox.systemTray.Checkbox;
+import dorkbox.systemTray.Entry;
+import dorkbox.systemTray.EntrySpec;
+import dorkbox.systemTray.Menu;
+import dorkbox.systemTray.MenuItem;
+import dorkbox.systemTray.peer.CheckboxPeer;
+import dorkbox.systemTray.peer.MenuPeer;
+
+/**
+ * Counts the native menu calls of Menu.reconcile(), compared to removing and re-adding every entry, for a menu that is regenerated from
+ * application state (a list of servers) over and over again.
+ * <p>
+ * This does not need a system tray. Every native call goes to a peer that only counts it.
+ */
+public
+class TestReconcile {
+    private static final int SERVERS = 200;
+    private static final int ROUNDS = 50;
+
+    private static int adds;
+    private static int removes;
+    private static int moves;
+    private static int updates;
+
+    /**
+     * Only counts the native calls
+     */
+    private static
+    class CountingPeer implements MenuPeer, CheckboxPeer {
+        @Override
+        public
+        void add(final Menu parentMenu, final Entry entry, final int index) {
+            adds++;
+
+            if (entry instanceof Menu) {
+                ((Menu) entry).bind(new CountingPeer(), parentMenu, null);
+            }
+            else if (entry instanceof Checkbox) {
+                ((Checkbox) entry).bind(new CountingPeer(), parentMenu, null);
+            }
+            else if (entry instanceof MenuItem) {
+                ((MenuItem) entry).bind(new CountingPeer(), parentMenu, null);
+            }
+            else {
+                entry.bind(new CountingPeer(), parentMenu, null);
+            }
+        }
+
+        @Override
+        public
+        void move(final int index, final int newIndex) {
+            moves++;
+        }
+
+        @Override
+        public
+        void edit(final Menu menu, final Runnable changes) {
+            changes.run();
+        }
+
+        @Override
+        public
+        boolean notifiesShowing() {
+            return false;
+        }
+
+        @Override
+        public
+        void remove() {
+            removes++;
+        }
+
+        @Override
+        public
+        void release() {
+        }
+
+        @Override
+        public
+        void setImage(final MenuItem menuItem) {
+            updates++;
+        }
+
+        @Override
+        public
+        void setEnabled(final MenuItem menuItem) {
+            updates++;
+        }
+
+        @Override
+        public
+        void setText(final MenuItem menuItem) {
+            updates++;
+        }
+
+        @Override
+        public
+        void setCallback(final MenuItem menuItem) {
+            updates++;
+        }
+
+        @Override
+        public
+        void setShortcut(final MenuItem menuItem) {
+            updates++;
+        }
+
+        @Override
+        public
+        void setEnabled(final Checkbox menuItem) {
+            updates++;
+        }
+
+        @Override
+        public
+        void setText(final Checkbox menuItem) {
+            updates++;
+        }
+
+        @Override
+        public
+        void setCallback(final Checkbox menuItem) {
+            updates++;
+        }
+
+        @Override
+        public
+        void setShortcut(final Checkbox menuItem) {
+            updates++;
+        }
+
+        @Override
+        public
+        void setChecked(final Checkbox checkbox) {
+            updates++;
+        }
+    }
+
+    public static
+    void main(String[] args) {
+        final Random random = new Random(42);
+
+        // the application state: the servers, and whether each one is up
+        final List<String> servers = new ArrayList<String>();
+        final List<Boolean> up = new ArrayList<Boolean>();
+        int nextServer = 0;
+        for (int i = 0; i < SERVERS; i++) {
+            servers.add("server-" + nextServer++);
+            up.add(true);
+        }
+
+        final Menu reconciled = new Menu();
+        reconciled.bind(new CountingPeer(), null, null);
+
+        final Menu rebuilt = new Menu();
+        rebuilt.bind(new CountingPeer(), null, null);
+
+        final int[] reconcileCalls = new int[4];
+        final int[] rebuildCalls = new int[4];
+
+        for (int round = 0; round < ROUNDS; round++) {
+            // every round, a few servers change state, one goes away, one is new, and one moves
+            for (int i = 0; i < 5; i++) {
+                final int server = random.nextInt(servers.size());
+                up.set(server, !up.get(server));
+            }
+
+            final int gone = random.nextInt(servers.size());
+            servers.remove(gone);
+            up.remove(gone);
+
+            final int added = random.nextInt(servers.size() + 1);
+            servers.add(added, "server-" + nextServer++);
+            up.add(added, true);
+
+            final int moved = random.nextInt(servers.size());
+            final int to = random.nextInt(servers.size());
+            servers.add(to, servers.remove(moved));
+            up.add(to, up.remove(moved));
+
+            // reconcile
+            final List<EntrySpec> specs = new ArrayList<EntrySpec>(servers.size());
+            final List<String> texts = new ArrayList<String>(servers.size());
+            for (int i = 0, size = servers.size(); i < size; i++) {
+                final String server = servers.get(i);
+                final String text = server + (up.get(i) ? " (up)" : " (down)");
+
+                specs.add(EntrySpec.item(server, text));
+                texts.add(text);
+            }
+
+            reset();
+            reconciled.reconcile(specs);
+            add(reconcileCalls);
+
+            // the menu must be exactly the specs, in the same order
+            final List<Entry> entries = reconciled.getEntries();
+            if (entries.size() != specs.size()) {
+                throw new RuntimeException("The reconciled menu has " + entries.size() + " entries instead of " + specs.size() +
+                                           " after round " + round);
+            }
+            for (int i = 0, size = specs.size(); i < size; i++) {
+                if (!specs.get(i).getKey().equals(entries.get(i).getKey())) {
+                    throw new RuntimeException("The reconciled menu is not in the order of the specs after round " + round);
+                }
+            }
+            if (!getTexts(reconciled).equals(texts)) {
+                throw new RuntimeException("The reconciled menu does not have the text of the specs after round " + round);
+            }
+
+            // remove and re-add everything
+            reset();
+            rebuilt.edit(new Menu.Edit() {
+                @Override
+                public
+                void edit(final Menu menu) {
+                    menu.clear();
+
+                    for (int i = 0, size = servers.size(); i < size; i++) {
+                        final String server = servers.get(i);
+                        menu.add(new MenuItem(server + (up.get(i) ? " (up)" : " (down)")));
+                    }
+                }
+            });
+            add(rebuildCalls);
+
+            if (!getTexts(reconciled).equals(getTexts(rebuilt))) {
+                throw new RuntimeException("The menus are different after round " + round);
+            }
+        }
+
+        System.out.println("The reconciled menu matched the specs after every round.");
+
+        // the first round creates every entry, for both of them
+        System.out.println("Native menu calls for " + ROUNDS + " rounds of " + SERVERS + " servers:");
+        print("reconcile", reconcileCalls);
+        print("remove and re-add", rebuildCalls);
+    }
+
+    private static
+    List<String> getTexts(final Menu menu) {
+        final List<Entry> entries = menu.getEntries();
+
+        final List<String> texts = new ArrayList<String>(entries.size());
+        for (Entry entry : entries) {
+            texts.add(((MenuItem) entry).getText());
+        }
+
+        return texts;
+    }
+
+    private static
+    void reset() {
+        adds = 0;
+        removes = 0;
+        moves = 0;
+        updates = 0;
+    }
+
+    private static
+    void add(final int[] calls) {
+        calls[0] += adds;
+        calls[1] += removes;
+        calls[2] += moves;
+        calls[3] += updates;
+    }
+
+    private static
+    void print(final String name, final int[] calls) {
+        final int total = calls[0] + calls[1] + calls[2] + calls[3];
+        System.out.println(String.format("  %-18s %6d total (%d adds, %d removes, %d moves, %d updates)",
+                                         name, total, calls[0], calls[1], calls[2], calls[3]));
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2016 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dorkbox;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import dorkbox.systemTray.Entry;
+import dorkbox.systemTray.EntrySpec;
+import dorkbox.systemTray.Menu;
+import dorkbox.systemTray.MenuItem;
+import dorkbox.systemTray.peer.MenuItemPeer;
+import dorkbox.systemTray.peer.MenuPeer;
+import dorkbox.systemTray.util.PendingShows;
+
+/**
+ * Counts how many times the native menus are shown (gtk_widget_show_all, which walks the whole menu), compared to how many native
+ * changes asked for it. It must be once per changed menu, not once per changed entry.
+ * <p>
+ * This does not need a system tray. The peers ask to be shown the same way as the GTK peers do (every change to an entry shows the menu
+ * that it is in), through the same {@link PendingShows}, but they only count. The event queue is a list that is run by this test.
+ */
+public
+class TestShowAll {
+    private static final int SUB_MENUS = 4;
+    private static final int ENTRIES = 250;
+
+    // the event queue
+    private static final List<Runnable> queue = new ArrayList<Runnable>();
+
+    private static int showRequests;
+    private static int shows;
+
+    private static final PendingShows<CountingMenu> pendingShows = new PendingShows<CountingMenu>() {
+        @Override
+        protected
+        void queue(final Runnable showPending) {
+            queue.add(showPending);
+        }
+
+        @Override
+        protected
+        void show(final CountingMenu menu) {
+            shows++;
+        }
+    };
+
+    private static
+    void showLater(final CountingMenu menu) {
+        if (menu != null) {
+            showRequests++;
+            pendingShows.showLater(menu);
+        }
+    }
+
+    /**
+     * Every change to an entry shows the menu that it is in
+     */
+    private static
+    class CountingItem implements MenuItemPeer {
+        final CountingMenu parent;
+
+        CountingItem(final CountingMenu parent) {
+            this.parent = parent;
+        }
+
+        @Override
+        public
+        void setImage(final MenuItem menuItem) {
+            showLater(parent);
+        }
+
+        @Override
+        public
+        void setEnabled(final MenuItem menuItem) {
+            showLater(parent);
+        }
+
+        @Override
+        public
+        void setText(final MenuItem menuItem) {
+            showLater(parent);
+        }
+
+        @Override
+        public
+        void setCallback(final MenuItem menuItem) {
+            showLater(parent);
+        }
+
+        @Override
+        public
+        void setShortcut(final MenuItem menuItem) {
+            showLater(parent);
+        }
+
+        @Override
+        public
+        void remove() {
+            showLater(parent);
+        }
+
+        @Override
+        public
+        void release() {
+        }
+    }
+
+    /**
+     * Adding, moving, or removing an entry shows this menu
+     */
+    private static
+    class CountingMenu extends CountingItem implements MenuPeer {
+        CountingMenu(final CountingMenu parent) {
+            super(parent);
+        }
+
+        @Override
+        public
+        void add(final Menu parentMenu, final Entry entry, final int index) {
+            if (entry instanceof Menu) {
+                ((Menu) entry).bind(new CountingMenu(this), parentMenu, null);
+            }
+            else {
+                ((MenuItem) entry).bind(new CountingItem(this), parentMenu, null);
+            }
+
+            showLater(this);
+        }
+
+        @Override
+        public
+        void move(final int index, final int newIndex) {
+            showLater(this);
+        }
+
+        @Override
+        public
+        void edit(final Menu menu, final Runnable changes) {
+            changes.run();
+        }
+
+        @Override
+        public
+        boolean notifiesShowing() {
+            return false;
+        }
+    }
+
+    public static
+    void main(String[] args) {
+        final Menu root = new Menu();
+        root.bind(new CountingMenu(null), null, null);
+
+        final List<Menu> subMenus = new ArrayList<Menu>(SUB_MENUS);
+
+        // every menu is new
+        root.edit(new Menu.Edit() {
+            @Override
+            public
+            void edit(final Menu menu) {
+                for (int i = 0; i < SUB_MENUS; i++) {
+                    final Menu subMenu = new Menu("Menu " + i);
+                    menu.add(subMenu);
+                    subMenus.add(subMenu);
+
+                    for (int j = 0; j < ENTRIES; j++) {
+                        subMenu.add(new MenuItem("Entry " + j));
+                    }
+                }
+            }
+        });
+        check("creating every menu", 1 + SUB_MENUS);
+
+        // only two of the menus change, but every entry of them (twice)
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < 2; i++) {
+                for (Entry entry : subMenus.get(i).getEntries()) {
+                    ((MenuItem) entry).setText("Changed " + round);
+                    ((MenuItem) entry).setEnabled(round == 0);
+                }
+            }
+        }
+        check("changing every entry of two menus", 2);
+
+        // one menu is reconciled to a different order, with some entries gone and some new
+        final List<EntrySpec> specs = new ArrayList<EntrySpec>(ENTRIES);
+        for (int j = 0; j < ENTRIES; j++) {
+            specs.add(EntrySpec.item("entry-" + j, "Entry " + j));
+        }
+        subMenus.get(2).reconcile(specs);
+        check("filling one menu", 1);
+
+        Collections.shuffle(specs, new Random(42));
+        specs.subList(0, ENTRIES / 10).clear();
+        for (int j = 0; j < ENTRIES / 10; j++) {
+            specs.add(EntrySpec.item("new-" + j, "New " + j));
+        }
+        subMenus.get(2).reconcile(specs);
+        check("reconciling one menu", 1);
+
+        System.out.println("Every menu was shown once per batch of changes.");
+    }
+
+    private static
+    void run() {
+        while (!queue.isEmpty()) {
+            queue.remove(0).run();
+        }
+    }
+
+    /**
+     * Runs the event queue, and checks how many menus were shown
+     */
+    private static
+    void check(final String what, final int expected) {
+        run();
+
+        System.out.println(String.format("  %-36s %5d native changes, %d menus shown", what, showRequests, shows));
+
+        if (shows != expected) {
+            throw new RuntimeException("Failed: " + what + " showed " + shows + " menus instead of " + expected);
+        }
+
+        showRequests = 0;
+        shows = 0;
+    }
+}
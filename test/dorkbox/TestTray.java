@@ -19,10 +19,14 @@ package dorkbox;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 
 import dorkbox.systemTray.Checkbox;
+import dorkbox.systemTray.EntrySpec;
 import dorkbox.systemTray.Menu;
 import dorkbox.systemTray.MenuItem;
+import dorkbox.systemTray.Section;
 import dorkbox.systemTray.Separator;
 import dorkbox.systemTray.SystemTray;
 
@@ -54,6 +58,25 @@ class TestTray {
     private SystemTray systemTray;
     private ActionListener callbackGray;
 
+    // the running jobs are shown in their own section, between the separator and the options
+    private Section jobs;
+    private final List<String> jobNames = new ArrayList<String>();
+    private int nextJob = 1;
+
+    // one callback for every job (the key of the entry is the job), so reconciling does not replace the callbacks of the jobs that stay
+    private final ActionListener stopJob = new ActionListener() {
+        @Override
+        public
+        void actionPerformed(final ActionEvent e) {
+            final String jobName = ((MenuItem) e.getSource()).getKey();
+
+            synchronized (jobNames) {
+                jobNames.remove(jobName);
+                updateJobs();
+            }
+        }
+    };
+
     public
     TestTray() {
         this.systemTray = SystemTray.get();
@@ -115,6 +138,9 @@ class TestTray {
 
         mainMenu.add(new Separator());
 
+        // created at the end of the menu, so it stays between the separator and everything that is added after it
+        jobs = mainMenu.section("jobs");
+
 
         Menu submenu = new Menu("Options", BLUE_CAMPING);
         submenu.setShortcut('t');
@@ -130,6 +156,17 @@ class TestTray {
         });
         submenu.add(disableMenu);
 
+        submenu.add(new MenuItem("Start job", BLACK_TRAIN, new ActionListener() {
+            @Override
+            public
+            void actionPerformed(final ActionEvent e) {
+                synchronized (jobNames) {
+                    jobNames.add("Job " + nextJob++);
+                    updateJobs();
+                }
+            }
+        }));
+
 
 // TODO: buggy. The menu will **sometimes** stop responding to the "enter" key after this. Mnemonics still work however.
 //        submenu.add(new MenuItem("Hide tray", LT_GRAY_BUS, new ActionListener() {
@@ -171,4 +208,20 @@ class TestTray {
             }
         })).setShortcut('q'); // case does not matter
     }
+
+    /**
+     * Only the jobs that were started or stopped change in the menu, the rest of the menu is not touched.
+     */
+    private
+    void updateJobs() {
+        synchronized (jobNames) {
+            final List<EntrySpec> specs = new ArrayList<EntrySpec>(jobNames.size());
+
+            for (final String jobName : jobNames) {
+                specs.add(EntrySpec.item(jobName, "Stop " + jobName).setCallback(stopJob));
+            }
+
+            jobs.reconcile(specs);
+        }
+    }
 }